@@ -0,0 +1,80 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Computes foldings asynchronously, i.e., without blocking the FX application thread.
+ * The provider receives an immutable snapshot of the document content and the version
+ * of the monaco model it corresponds to. Results that complete after the document has
+ * changed or after the request has been cancelled are discarded.
+ */
+@FunctionalInterface
+public interface AsyncFoldingProvider {
+
+    /**
+     * Computes the foldings of the specified content. Called on the FX application thread,
+     * the actual computation should run on a background thread.
+     * @param text content of the document (immutable)
+     * @param versionId version of the monaco model the content corresponds to
+     * @param token signals that the result is no longer needed
+     * @return future foldings (line numbers are 1-based)
+     */
+    CompletableFuture<List<Folding>> computeFoldings(TextBuffer text, int versionId, CancellationToken token);
+
+    /**
+     * Computes the foldings of the specified document. This variant is called by the editor.
+     * Providers that keep per-document state (see {@link IncrementalFoldingProvider})
+     * override it, by default the document is ignored.
+     * @param document document the content belongs to
+     * @param text content of the document (immutable)
+     * @param versionId version of the monaco model the content corresponds to
+     * @param token signals that the result is no longer needed
+     * @return future foldings (line numbers are 1-based)
+     */
+    default CompletableFuture<List<Folding>> computeFoldings(Document document, TextBuffer text,
+                                                             int versionId, CancellationToken token) {
+        return computeFoldings(text, versionId, token);
+    }
+
+    /**
+     * Computation of foldings used by {@link #of(Computation)}.
+     */
+    @FunctionalInterface
+    interface Computation {
+        List<Folding> computeFoldings(TextBuffer text, CancellationToken token);
+    }
+
+    /**
+     * Creates a provider that runs the specified computation on the common fork/join pool.
+     * @param computation computation to run
+     * @return async folding provider
+     */
+    static AsyncFoldingProvider of(Computation computation) {
+        return (text, versionId, token) -> CompletableFuture.supplyAsync(
+                () -> computation.computeFoldings(text, token));
+    }
+}
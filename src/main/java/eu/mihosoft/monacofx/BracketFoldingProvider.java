@@ -0,0 +1,103 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Folds the lines between matching brackets. The line of the closing bracket is not
+ * folded. Brackets in strings and comments are not excluded.
+ */
+public final class BracketFoldingProvider extends IncrementalFoldingProvider {
+
+    // at most this many unmatched brackets per line are counted
+    private static final int MAX_COUNT = 0xFFFF;
+
+    private final String openBrackets;
+    private final String closeBrackets;
+
+    /**
+     * Creates a provider for curly braces.
+     */
+    public BracketFoldingProvider() {
+        this("{", "}");
+    }
+
+    /**
+     * @param openBrackets opening brackets, e.g., {@code "{["}
+     * @param closeBrackets closing brackets, e.g., {@code "}]"}
+     */
+    public BracketFoldingProvider(String openBrackets, String closeBrackets) {
+        this.openBrackets = openBrackets;
+        this.closeBrackets = closeBrackets;
+    }
+
+    /**
+     * @return unmatched closing brackets (upper 16 bits) followed by unmatched opening brackets
+     * (lower 16 bits) of the line
+     */
+    @Override
+    protected int scanLine(CharSequence line) {
+        int closes = 0;
+        int opens = 0;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (openBrackets.indexOf(c) >= 0) {
+                opens++;
+            } else if (closeBrackets.indexOf(c) >= 0) {
+                if (opens > 0) {
+                    opens--;
+                } else {
+                    closes++;
+                }
+            }
+        }
+        return Math.min(closes, MAX_COUNT) << 16 | Math.min(opens, MAX_COUNT);
+    }
+
+    @Override
+    protected void computeFoldings(int[] lineStates, int lineCount, List<Folding> result) {
+        // lines of unmatched opening brackets
+        int[] stack = new int[16];
+        int depth = 0;
+
+        for (int line = 1; line <= lineCount; line++) {
+            int state = lineStates[line - 1];
+            for (int closes = state >>> 16; closes > 0 && depth > 0; closes--) {
+                int start = stack[--depth];
+                if (line - 1 > start) {
+                    result.add(new Folding(start, line - 1));
+                }
+            }
+            for (int opens = state & MAX_COUNT; opens > 0; opens--) {
+                if (depth == stack.length) stack = Arrays.copyOf(stack, depth * 2);
+                stack[depth++] = line;
+            }
+        }
+
+        result.sort(Comparator.comparingInt(f -> f.start));
+    }
+}
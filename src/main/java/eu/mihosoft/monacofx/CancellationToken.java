@@ -0,0 +1,74 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Signals that the result of an operation is no longer needed, e.g., because monaco
+ * cancelled the request. Long running operations should check
+ * {@link #isCancellationRequested()} regularly. Thread-safe.
+ */
+public final class CancellationToken {
+
+    private volatile boolean cancellationRequested;
+    private List<Runnable> listeners = new ArrayList<>();
+
+    /**
+     * @return {@code true} if cancellation has been requested
+     */
+    public boolean isCancellationRequested() {
+        return cancellationRequested;
+    }
+
+    /**
+     * Adds a listener that is invoked when cancellation is requested. If cancellation has
+     * already been requested the listener is invoked immediately.
+     * @param listener listener to add
+     */
+    public void onCancellationRequested(Runnable listener) {
+        synchronized (this) {
+            if (!cancellationRequested) {
+                listeners.add(listener);
+                return;
+            }
+        }
+        listener.run();
+    }
+
+    /**
+     * Requests cancellation and invokes the listeners (only once).
+     */
+    void cancel() {
+        List<Runnable> toNotify;
+        synchronized (this) {
+            if (cancellationRequested) return;
+            cancellationRequested = true;
+            toNotify = listeners;
+            listeners = null;
+        }
+        toNotify.forEach(Runnable::run);
+    }
+}
@@ -45,67 +45,47 @@ public class ClipboardBridge {
 	 * @param jsSelection javascript object passed as parameter.
 	 */
 	public void copy(JSObject jsSelection) {
-		int startLineNumber = getNumber(jsSelection, "startLineNumber") - 1;
-		int startColumn = getNumber(jsSelection, "startColumn") - 1;
-		int endLineNumber = getNumber(jsSelection, "endLineNumber") - 1;
-		int endColumn = getNumber(jsSelection, "endColumn") - 1;
-		String originText = document.getText();
-		String[] lines = originText.split("\n");
-		StringBuilder copyText = new StringBuilder();
-		if (startLineNumber == endLineNumber) {
-			copyText = new StringBuilder(lines[startLineNumber].substring(startColumn, endColumn));
-		} else {
-			String startLine = lines[startLineNumber].substring(startColumn);
-			copyText = new StringBuilder(startLine + "\n");
-			for (int i = startLineNumber + 1; i < endLineNumber; i++) {
-				copyText.append(lines[i]).append("\n");
-			}
-			String endLine = lines[endLineNumber].substring(0, endColumn);
-			copyText.append(endLine);
-		}
-		String finalCopyText = copyText.toString();
-
-		systemClipboardWrapper.putString(finalCopyText);
+		String copyText = document.getText(getStart(jsSelection), getEnd(jsSelection));
+		systemClipboardWrapper.putString(copyText);
 	}
 
 
 	/**
-	 * Pastes the text from Clipboard into the editor at the mouse position
-	 * and returns the new position after the selected text.
+	 * Pastes the text from Clipboard into the editor. The text replaces the selection
+	 * and the returned position is located after the pasted text.
 	 * Triggerd by context menu item 'paste'.
-	 * @param jsSelection mouse postion before paste.
+	 * @param jsSelection selection before paste.
 	 * @param position mouse postion before paste.
 	 * @return new mouse postion after the selected text
 	 */
 	public JSObject paste(JSObject jsSelection, JSObject position) {
 		if (systemClipboardWrapper.hasString()) {
 			String pasteString = systemClipboardWrapper.getString();
-			String originText = document.getText();
-			String changedText = addPasteString(jsSelection, pasteString, originText);
-			document.updateText(changedText);
-			calcNewCursorPosition(position, pasteString);
+			Position start = getStart(jsSelection);
+			document.replace(start, getEnd(jsSelection), pasteString);
+			calcNewCursorPosition(position, start, pasteString);
 		}
 		return position;
 	}
 
+	private void calcNewCursorPosition(JSObject position, Position start, String string) {
+		String[] lines = string.split("\\R", -1);
+		String lastLine = lines[lines.length - 1];
+		if (lines.length == 1) {
+			position.setMember("lineNumber", start.lineNumber);
+			position.setMember("column", start.column + lastLine.length());
+		} else {
+			position.setMember("lineNumber", start.lineNumber + lines.length - 1);
+			position.setMember("column", lastLine.length() + 1);
+		}
+	}
 
-	private String addPasteString(JSObject jsSelection, String pasteString, String originText) {
-		String[] lines = originText.split("\n");
-		int startLineNumber = getNumber(jsSelection, "startLineNumber") - 1;
-		int startColumn = getNumber(jsSelection, "startColumn") - 1;
-		String beforeMousePosition = lines[startLineNumber].substring(0, startColumn);
-		String afterMousePosition = lines[startLineNumber].substring(startColumn);
-		String lineChanged = beforeMousePosition + pasteString + afterMousePosition;
-		lines[startLineNumber] = lineChanged;
-		return String.join("\n", lines);
+	private Position getStart(JSObject selection) {
+		return new Position(getNumber(selection, "startLineNumber"), getNumber(selection, "startColumn"));
 	}
 
-	private void calcNewCursorPosition(JSObject position, String string) {
-		int lineNumber = getNumber(position, "lineNumber");
-		int column = getNumber(position, "column");
-		long count = string.lines().count() - 1;
-		position.setMember("lineNumber", lineNumber + count);
-		position.setMember("column", column + string.lines().skip(count).findFirst().get().length());
+	private Position getEnd(JSObject selection) {
+		return new Position(getNumber(selection, "endLineNumber"), getNumber(selection, "endColumn"));
 	}
 
 	private int getNumber(JSObject selection, String startLineNumber) {
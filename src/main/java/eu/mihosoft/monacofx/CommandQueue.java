@@ -0,0 +1,208 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+import netscape.javascript.JSException;
+import netscape.javascript.JSObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Queue of outgoing java → monaco commands. A command is a call of a global js function.
+ * Commands are collected and executed once per pulse: the whole batch is sent as one JSON
+ * payload to {@code runCommands()} (see index.html), i.e., no script source is generated.
+ * Commands of a merging kind replace pending commands of the same kind and target, e.g.,
+ * only the last scroll position is sent.
+ *
+ * Calls that need a return value or that change the content of a model (the java side copy
+ * of a document is updated by the resulting change events) use {@link #call(JSObject, String, Object...)}
+ * which executes all pending commands first, so that the order of operations is preserved.
+ * Must be used from the FX application thread.
+ */
+final class CommandQueue {
+
+    enum Kind {
+        /** arbitrary call, never merged */
+        CALL(false),
+        /** global editor theme */
+        THEME(true),
+        /** model language */
+        LANGUAGE(true),
+        /** scroll position of the editor */
+        SCROLL(true),
+        /** line to reveal */
+        REVEAL(true),
+        /** large-file mode of the editor */
+        LARGE_FILE_MODE(true),
+        /** read-only option of the editor */
+        READ_ONLY(true),
+        /** line number offset of the editor */
+        LINE_NUMBERS(true);
+
+        private final boolean merge;
+
+        Kind(boolean merge) {
+            this.merge = merge;
+        }
+    }
+
+    private static final class Command {
+        final Kind kind;
+        final Object target;
+        final String function;
+        final Supplier<Object[]> args;
+
+        Command(Kind kind, Object target, String function, Supplier<Object[]> args) {
+            this.kind = kind;
+            this.target = target;
+            this.function = function;
+            this.args = args;
+        }
+    }
+
+    private final PulseCoalescer pulseCoalescer;
+    private final List<Command> commands = new ArrayList<>();
+    private final JsonWriter json = new JsonWriter();
+    private JSObject window;
+    private Consumer<? super JSException> errorHandler = CommandQueue::logError;
+
+    CommandQueue(PulseCoalescer pulseCoalescer) {
+        this.pulseCoalescer = pulseCoalescer;
+    }
+
+    /**
+     * Sets the js window. Commands posted before are executed with the next flush.
+     * @param window js window
+     */
+    void setWindow(JSObject window) {
+        this.window = window;
+        if (!commands.isEmpty()) pulseCoalescer.submit(this, this::flush);
+    }
+
+    /**
+     * Posts the specified command for execution on the next pulse.
+     * @param kind kind of the command
+     * @param target object the command refers to (commands of merging kinds are merged per target)
+     * @param function name of the global js function to call
+     * @param args arguments (see {@link JsonWriter#value(Object)} for supported types)
+     */
+    void post(Kind kind, Object target, String function, Object... args) {
+        postDeferred(kind, target, function, () -> args);
+    }
+
+    /**
+     * Posts the specified command for execution on the next pulse. The arguments are created
+     * when the command is executed, e.g., to collect changes until then.
+     * @param kind kind of the command
+     * @param target object the command refers to (commands of merging kinds are merged per target)
+     * @param function name of the global js function to call
+     * @param args supplies the arguments ({@code null}: the command is skipped)
+     */
+    void postDeferred(Kind kind, Object target, String function, Supplier<Object[]> args) {
+        if (kind.merge) cancel(kind, target);
+        commands.add(new Command(kind, target, function, args));
+        pulseCoalescer.submit(this, this::flush);
+    }
+
+    /**
+     * Runs the specified task on the next pulse (tasks with equal keys are merged).
+     * May be called from any thread.
+     * @param key key of the task
+     * @param task task to run on the FX application thread
+     */
+    void runOnPulse(Object key, Runnable task) {
+        pulseCoalescer.submit(key, task);
+    }
+
+    /**
+     * Removes pending commands of the specified kind and target.
+     * @param kind kind of the commands to remove
+     * @param target target of the commands to remove
+     */
+    void cancel(Kind kind, Object target) {
+        commands.removeIf(c -> c.kind == kind && c.target == target);
+    }
+
+    /**
+     * Sets the handler of errors of posted commands (default: the errors are logged).
+     * @param errorHandler error handler
+     */
+    void setErrorHandler(Consumer<? super JSException> errorHandler) {
+        this.errorHandler = errorHandler;
+    }
+
+    private static void logError(JSException ex) {
+        System.getLogger(CommandQueue.class.getName()).log(System.Logger.Level.WARNING,
+                "monaco command failed", ex);
+    }
+
+    /**
+     * Executes all pending commands immediately. Errors of individual commands do not
+     * prevent the execution of subsequent commands and are passed to the error handler
+     * afterwards (see {@link #setErrorHandler(Consumer)}).
+     */
+    void flush() {
+        if (window == null || commands.isEmpty()) return;
+
+        // commands posted by js callbacks during execution are executed with the next flush
+        List<Command> pending = new ArrayList<>(commands);
+        commands.clear();
+        pulseCoalescer.cancel(this);
+
+        json.reset().beginArray();
+        for (Command command : pending) {
+            Object[] args = command.args.get();
+            if (args == null) continue;
+            json.beginArray().value(command.function);
+            for (Object arg : args) {
+                json.value(arg);
+            }
+            json.endArray();
+        }
+        json.endArray();
+
+        Object errors = window.call("runCommands", json.toString());
+        if (errors instanceof String) {
+            errorHandler.accept(new JSException((String) errors));
+        }
+    }
+
+    /**
+     * Synchronously calls the specified method after executing all pending commands. Errors
+     * of pending commands are passed to the error handler, i.e., only errors of the call
+     * itself are thrown.
+     * @param target js object
+     * @param method name of the method
+     * @param args arguments
+     * @return the return value of the method
+     * @throws JSException if the call failed
+     */
+    Object call(JSObject target, String method, Object... args) {
+        flush();
+        return target.call(method, args);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+import java.util.List;
+
+/**
+ * Completion proposal of a {@link CompletionProvider}.
+ */
+public final class CompletionItem {
+
+    public enum Kind {
+        METHOD(0), FUNCTION(1), CONSTRUCTOR(2), FIELD(3), VARIABLE(4), CLASS(5), STRUCT(6),
+        INTERFACE(7), MODULE(8), PROPERTY(9), EVENT(10), OPERATOR(11), UNIT(12), VALUE(13),
+        CONSTANT(14), ENUM(15), ENUM_MEMBER(16), KEYWORD(17), TEXT(18), COLOR(19), FILE(20),
+        REFERENCE(21), CUSTOM_COLOR(22), FOLDER(23), TYPE_PARAMETER(24), SNIPPET(25);
+
+        // value of monaco's CompletionItemKind
+        final int value;
+
+        Kind(int value) {
+            this.value = value;
+        }
+    }
+
+    /** label shown in the suggest widget (also used for filtering) */
+    public final String label;
+    public final Kind kind;
+    /** text that replaces the word at the cursor */
+    public final String insertText;
+    /** additional information, e.g., the type signature (may be {@code null}) */
+    public final String detail;
+    /** documentation (may be {@code null}) */
+    public final String documentation;
+
+    public CompletionItem(String label, Kind kind, String insertText, String detail, String documentation) {
+        this.label = label;
+        this.kind = kind;
+        this.insertText = insertText;
+        this.detail = detail;
+        this.documentation = documentation;
+    }
+
+    public CompletionItem(String label, Kind kind) {
+        this(label, kind, label, null, null);
+    }
+
+    /**
+     * @param items items to serialize
+     * @return the specified items as JSON array
+     */
+    static String toJSON(List<CompletionItem> items) {
+        JsonWriter json = new JsonWriter().beginArray();
+        if (items != null) {
+            for (CompletionItem item : items) {
+                json.beginObject()
+                        .name("label").value(item.label)
+                        .name("kind").value(item.kind.value)
+                        .name("insertText").value(item.insertText);
+                if (item.detail != null) json.name("detail").value(item.detail);
+                if (item.documentation != null) json.name("documentation").value(item.documentation);
+                json.endObject();
+            }
+        }
+        return json.endArray().toString();
+    }
+
+    @Override
+    public String toString() {
+        return "CompletionItem[label='" + label + "', kind=" + kind + "]";
+    }
+}
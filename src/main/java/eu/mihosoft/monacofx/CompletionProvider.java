@@ -0,0 +1,73 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Computes completion proposals asynchronously, i.e., without blocking the FX application
+ * thread. Results that complete after the document has changed or after monaco cancelled
+ * the request are discarded. Monaco filters and sorts the proposals by the word at the
+ * cursor.
+ */
+@FunctionalInterface
+public interface CompletionProvider {
+
+    /**
+     * Computes the completion proposals at the specified position. Called on the FX
+     * application thread, expensive computations should run on a background thread.
+     * @param document document to complete
+     * @param text content of the document (immutable)
+     * @param versionId version of the monaco model the content corresponds to
+     * @param position cursor position (1-based line number and column)
+     * @param prefix part of the word at the cursor before the cursor (may be empty)
+     * @param token signals that the result is no longer needed
+     * @return future completion proposals
+     */
+    CompletableFuture<List<CompletionItem>> computeCompletions(Document document, TextBuffer text, int versionId,
+                                                               Position position, String prefix,
+                                                               CancellationToken token);
+
+    /**
+     * Creates a provider that proposes the words of the document that start with the prefix
+     * (case-insensitive), looked up in the word index of the document (see
+     * {@link Document#getWordIndex()}).
+     * @param maxItems maximum number of proposals
+     * @return word completion provider
+     */
+    static CompletionProvider words(int maxItems) {
+        return (document, text, versionId, position, prefix, token) -> {
+            List<String> words = document.getWordIndex().complete(prefix, maxItems + 1);
+            List<CompletionItem> items = new ArrayList<>(words.size());
+            for (String word : words) {
+                // the word that is being typed
+                if (word.equals(prefix) || items.size() == maxItems) continue;
+                items.add(new CompletionItem(word, CompletionItem.Kind.TEXT));
+            }
+            return CompletableFuture.completedFuture(items);
+        };
+    }
+}
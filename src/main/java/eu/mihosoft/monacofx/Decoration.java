@@ -0,0 +1,96 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+/**
+ * A decorated range of a document (see {@link DecorationStore}). The range is shifted
+ * automatically when the document changes.
+ */
+public final class Decoration {
+
+    final int id;
+    final DecorationOptions options;
+
+    // node of the interval tree of the store (offsets relative to pending shifts of the ancestors)
+    int start;
+    int end;
+    int maxEnd;
+    int lazy;
+    final int priority;
+    Decoration left;
+    Decoration right;
+    Decoration parent;
+
+    // store the decoration belongs to (null if removed)
+    DecorationStore store;
+    // whether the decoration has been sent to monaco
+    boolean inMonaco;
+
+    Decoration(int id, int start, int end, DecorationOptions options, int priority) {
+        this.id = id;
+        this.start = start;
+        this.end = end;
+        this.maxEnd = end;
+        this.options = options;
+        this.priority = priority;
+    }
+
+    /**
+     * @return start offset (inclusive)
+     */
+    public int getStart() {
+        return start + ancestorShift();
+    }
+
+    /**
+     * @return end offset (exclusive)
+     */
+    public int getEnd() {
+        return end + ancestorShift();
+    }
+
+    public DecorationOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * @return whether the decoration has been removed from its store
+     */
+    public boolean isRemoved() {
+        return store == null;
+    }
+
+    private int ancestorShift() {
+        int shift = 0;
+        for (Decoration p = parent; p != null; p = p.parent) {
+            shift += p.lazy;
+        }
+        return shift;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + getStart() + ", " + getEnd() + ")";
+    }
+}
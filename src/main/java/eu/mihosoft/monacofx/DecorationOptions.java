@@ -0,0 +1,75 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+/**
+ * Appearance of a {@link Decoration} (subset of monaco's {@code IModelDecorationOptions}).
+ * Options are immutable and should be shared by decorations that look the same.
+ */
+public final class DecorationOptions {
+    /** css class of the decorated range */
+    public final String className;
+    /** css class of the inline text of the decorated range */
+    public final String inlineClassName;
+    /** hover message (markdown) */
+    public final String hoverMessage;
+    /** whether the decoration covers whole lines */
+    public final boolean isWholeLine;
+
+    // options are immutable, the serialized form is computed once
+    private String json;
+
+    public DecorationOptions(String className, String inlineClassName, String hoverMessage, boolean isWholeLine) {
+        this.className = className;
+        this.inlineClassName = inlineClassName;
+        this.hoverMessage = hoverMessage;
+        this.isWholeLine = isWholeLine;
+    }
+
+    public DecorationOptions(String className, boolean isWholeLine) {
+        this(className, null, null, isWholeLine);
+    }
+
+    public DecorationOptions(String className) {
+        this(className, null, null, false);
+    }
+
+    /**
+     * @return the options as JSON object
+     */
+    String toJSON() {
+        if (json == null) {
+            JsonWriter writer = new JsonWriter().beginObject();
+            // decorations do not grow when typing at their edges (see DecorationStore)
+            writer.name("stickiness").value(1);
+            if (className != null) writer.name("className").value(className);
+            if (inlineClassName != null) writer.name("inlineClassName").value(inlineClassName);
+            if (hoverMessage != null) writer.name("hoverMessage").beginObject()
+                    .name("value").value(hoverMessage).endObject();
+            if (isWholeLine) writer.name("isWholeLine").value(true);
+            json = writer.endObject().toString();
+        }
+        return json;
+    }
+}
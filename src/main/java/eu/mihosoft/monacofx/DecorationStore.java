@@ -0,0 +1,401 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Decorations of a {@link Document}, e.g., coverage, search hits or blame information.
+ * Decorations are kept in an interval tree (treap ordered by start offset, augmented with the
+ * maximum end offset of each subtree). Document changes shift the decorations after the
+ * changed range lazily in O(log n), only decorations that overlap the changed range are
+ * adjusted individually. Decorations do not grow when text is inserted at their edges.
+ * Replacing the whole content removes all decorations (as monaco does).
+ *
+ * Changes are sent to monaco once per pulse as one {@code deltaDecorations} call that only
+ * contains the added and removed decorations. Must be used from the FX application thread.
+ */
+public final class DecorationStore {
+
+    private final Document document;
+    private final Random random = new Random();
+    private Decoration root;
+    private int size;
+    private int lastId;
+
+    // split results
+    private Decoration splitLeft;
+    private Decoration splitRight;
+
+    // monaco synchronization
+    private CommandQueue commands;
+    private String modelId;
+    private final Set<Decoration> pendingAdds = new LinkedHashSet<>();
+    private int[] pendingRemoves = new int[16];
+    private int pendingRemovesSize;
+    private boolean pendingClear;
+    private boolean posted;
+
+    // decorations added as a group by an owner, e.g., the highlighted matches of a search
+    private final Map<Object, List<Decoration>> groups = new IdentityHashMap<>();
+
+    DecorationStore(Document document) {
+        this.document = document;
+    }
+
+    /**
+     * Adds a decoration.
+     * @param start start offset (inclusive)
+     * @param end end offset (exclusive)
+     * @param options appearance of the decoration
+     * @return the new decoration
+     */
+    public Decoration add(int start, int end, DecorationOptions options) {
+        if (start < 0 || end < start || end > document.getLength()) {
+            throw new IllegalArgumentException("invalid range [" + start + ", " + end
+                    + ") for document length " + document.getLength());
+        }
+        Decoration decoration = new Decoration(++lastId, start, end, options, random.nextInt());
+        decoration.store = this;
+        insert(decoration);
+        size++;
+        pendingAdds.add(decoration);
+        changed();
+        return decoration;
+    }
+
+    /**
+     * Removes the specified decoration.
+     * @param decoration decoration to remove
+     */
+    public void remove(Decoration decoration) {
+        if (decoration.store != this) return;
+        delete(decoration);
+        decoration.store = null;
+        size--;
+        if (!pendingAdds.remove(decoration) && decoration.inMonaco) {
+            if (pendingRemovesSize == pendingRemoves.length) {
+                pendingRemoves = Arrays.copyOf(pendingRemoves, pendingRemovesSize * 2);
+            }
+            pendingRemoves[pendingRemovesSize++] = decoration.id;
+        }
+        decoration.inMonaco = false;
+        changed();
+    }
+
+    /**
+     * Removes all decorations.
+     */
+    public void clear() {
+        forEach(root, d -> d.store = null);
+        root = null;
+        size = 0;
+        groups.clear();
+        pendingAdds.clear();
+        pendingRemovesSize = 0;
+        pendingClear = true;
+        changed();
+    }
+
+    /**
+     * @param owner owner of the group
+     * @return the decorations of the specified owner (may be {@code null})
+     */
+    List<Decoration> getGroup(Object owner) {
+        return groups.get(owner);
+    }
+
+    /**
+     * Replaces the decoration group of the specified owner (the previous decorations are not
+     * removed from the store).
+     * @param owner owner of the group
+     * @param decorations decorations of the group (added by the owner)
+     */
+    void setGroup(Object owner, List<Decoration> decorations) {
+        groups.put(owner, decorations);
+    }
+
+    /**
+     * Removes the decoration group of the specified owner and its decorations.
+     * @param owner owner of the group
+     */
+    void removeGroup(Object owner) {
+        List<Decoration> decorations = groups.remove(owner);
+        if (decorations != null) decorations.forEach(this::remove);
+    }
+
+    /**
+     * @return number of decorations
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the decorations that overlap or touch the specified range, ordered by start offset.
+     * @param start start offset
+     * @param end end offset
+     * @return decorations with {@code decoration.start <= end && decoration.end >= start}
+     */
+    public List<Decoration> query(int start, int end) {
+        List<Decoration> result = new ArrayList<>();
+        query(root, start, end, result);
+        return result;
+    }
+
+    private static void query(Decoration n, int start, int end, List<Decoration> result) {
+        if (n == null || n.maxEnd < start) return;
+        push(n);
+        query(n.left, start, end, result);
+        if (n.start > end) return;
+        if (n.end >= start) result.add(n);
+        query(n.right, start, end, result);
+    }
+
+    /**
+     * Adjusts the decorations to the specified change of the document.
+     */
+    void applyChange(DocumentChange change) {
+        if (change.flush) {
+            if (size > 0) clear();
+            return;
+        }
+        if (root == null) return;
+
+        int offset = change.rangeOffset;
+        int removed = change.rangeLength;
+        int delta = change.text.length() - removed;
+
+        // decorations starting after the removed range are shifted
+        split(root, offset + removed, Integer.MIN_VALUE);
+        Decoration right = splitRight;
+        shift(right, delta);
+
+        // decorations that overlap or touch the changed range are adjusted individually
+        root = splitLeft;
+        List<Decoration> affected = new ArrayList<>();
+        collectEndingAtOrAfter(root, offset, affected);
+        for (Decoration d : affected) {
+            delete(d);
+        }
+        root = merge(root, right);
+        if (root != null) root.parent = null;
+
+        for (Decoration d : affected) {
+            int s = d.start;
+            int e = d.end;
+            int newStart = s < offset ? s : s >= offset + removed ? s + delta : offset;
+            int newEnd = e <= offset ? e : e >= offset + removed ? e + delta : offset;
+            d.start = newStart;
+            d.end = Math.max(newStart, newEnd);
+            insert(d);
+        }
+    }
+
+    private static void collectEndingAtOrAfter(Decoration n, int offset, List<Decoration> result) {
+        if (n == null || n.maxEnd < offset) return;
+        push(n);
+        collectEndingAtOrAfter(n.left, offset, result);
+        if (n.end >= offset) result.add(n);
+        collectEndingAtOrAfter(n.right, offset, result);
+    }
+
+    /**
+     * Called when the document got a monaco model. All decorations are sent to monaco.
+     */
+    void attach(CommandQueue commands, String modelId) {
+        this.commands = commands;
+        this.modelId = modelId;
+        pendingAdds.clear();
+        pendingRemovesSize = 0;
+        pendingClear = false;
+        posted = false;
+        forEach(root, pendingAdds::add);
+        changed();
+    }
+
+    /**
+     * Called when the monaco model of the document has been disposed.
+     */
+    void detach() {
+        this.commands = null;
+        this.modelId = null;
+        forEach(root, d -> d.inMonaco = false);
+        pendingAdds.clear();
+        pendingRemovesSize = 0;
+        pendingClear = false;
+        posted = false;
+    }
+
+    private void changed() {
+        if (posted || commands == null) return;
+        posted = true;
+        commands.postDeferred(CommandQueue.Kind.CALL, this, "updateDecorations", this::createDelta);
+    }
+
+    /**
+     * @return arguments of {@code updateDecorations()}: model id, whether all decorations are
+     * removed, removed ids, added decorations {@code (id, start, end, optionsIndex)*} and the
+     * options array
+     */
+    private Object[] createDelta() {
+        posted = false;
+        if (modelId == null) return null;
+
+        Map<DecorationOptions, Integer> optionIndices = new IdentityHashMap<>();
+        JsonWriter options = new JsonWriter().beginArray();
+        int[] added = new int[pendingAdds.size() * 4];
+        int i = 0;
+        for (Decoration d : pendingAdds) {
+            Integer optionsIndex = optionIndices.get(d.options);
+            if (optionsIndex == null) {
+                optionsIndex = optionIndices.size();
+                optionIndices.put(d.options, optionsIndex);
+                options.value(JsonWriter.raw(d.options.toJSON()));
+            }
+            added[i++] = d.id;
+            added[i++] = d.getStart();
+            added[i++] = d.getEnd();
+            added[i++] = optionsIndex;
+            d.inMonaco = true;
+        }
+        Object[] args = {modelId, pendingClear, Arrays.copyOf(pendingRemoves, pendingRemovesSize),
+                added, JsonWriter.raw(options.endArray().toString())};
+
+        pendingAdds.clear();
+        pendingRemovesSize = 0;
+        pendingClear = false;
+        return args;
+    }
+
+    // ---- treap ----
+
+    private static void forEach(Decoration n, Consumer<Decoration> consumer) {
+        if (n == null) return;
+        push(n);
+        forEach(n.left, consumer);
+        consumer.accept(n);
+        forEach(n.right, consumer);
+    }
+
+    private void insert(Decoration d) {
+        d.left = null;
+        d.right = null;
+        d.lazy = 0;
+        d.maxEnd = d.end;
+        split(root, d.start, d.id);
+        root = merge(merge(splitLeft, d), splitRight);
+        root.parent = null;
+    }
+
+    private void delete(Decoration d) {
+        int start = d.getStart();
+        split(root, start, d.id);
+        Decoration left = splitLeft;
+        split(splitRight, start, d.id + 1);
+        root = merge(left, splitRight);
+        if (root != null) root.parent = null;
+        d.left = null;
+        d.right = null;
+        d.parent = null;
+    }
+
+    /**
+     * Splits the specified tree into nodes ordered before {@code (start, id)} ({@link #splitLeft})
+     * and the remaining nodes ({@link #splitRight}).
+     */
+    private void split(Decoration n, int start, int id) {
+        if (n == null) {
+            splitLeft = null;
+            splitRight = null;
+            return;
+        }
+        push(n);
+        if (n.start < start || (n.start == start && n.id < id)) {
+            split(n.right, start, id);
+            n.right = splitLeft;
+            splitLeft = update(n);
+        } else {
+            split(n.left, start, id);
+            n.left = splitRight;
+            splitRight = update(n);
+        }
+        if (splitLeft != null) splitLeft.parent = null;
+        if (splitRight != null) splitRight.parent = null;
+    }
+
+    private static Decoration merge(Decoration a, Decoration b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        if (a.priority > b.priority) {
+            push(a);
+            a.right = merge(a.right, b);
+            return update(a);
+        } else {
+            push(b);
+            b.left = merge(a, b.left);
+            return update(b);
+        }
+    }
+
+    private static Decoration update(Decoration n) {
+        n.maxEnd = n.end;
+        if (n.left != null) {
+            n.maxEnd = Math.max(n.maxEnd, n.left.maxEnd);
+            n.left.parent = n;
+        }
+        if (n.right != null) {
+            n.maxEnd = Math.max(n.maxEnd, n.right.maxEnd);
+            n.right.parent = n;
+        }
+        return n;
+    }
+
+    /**
+     * Moves the pending shift of the specified node to its children.
+     */
+    private static void push(Decoration n) {
+        if (n.lazy != 0) {
+            shift(n.left, n.lazy);
+            shift(n.right, n.lazy);
+            n.lazy = 0;
+        }
+    }
+
+    private static void shift(Decoration n, int delta) {
+        if (n == null || delta == 0) return;
+        n.start += delta;
+        n.end += delta;
+        n.maxEnd += delta;
+        n.lazy += delta;
+    }
+}
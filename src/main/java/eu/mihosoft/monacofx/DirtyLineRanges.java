@@ -0,0 +1,160 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+/**
+ * Lines that need to be processed again by an incremental algorithm, kept in sync with
+ * document changes. The lines are stored as sorted ranges {@code [start, end)} that neither
+ * overlap nor touch, so that edits far apart do not mark the lines between them dirty. Beyond
+ * {@value #MAX_RANGES} ranges the closest ones are merged. Indices are 0-based. Not thread-safe.
+ */
+final class DirtyLineRanges {
+
+    static final int MAX_RANGES = 64;
+
+    // start and end of each range
+    private int[] ranges = new int[8];
+    private int rangeCount;
+    private int[] scratch = new int[8];
+
+    boolean isEmpty() {
+        return rangeCount == 0;
+    }
+
+    int getRangeCount() {
+        return rangeCount;
+    }
+
+    int getStart(int range) {
+        return ranges[2 * range];
+    }
+
+    int getEnd(int range) {
+        return ranges[2 * range + 1];
+    }
+
+    /**
+     * Marks the lines {@code [start, end)} dirty (replaces the current ranges).
+     */
+    void set(int start, int end) {
+        rangeCount = 0;
+        if (start < end) {
+            ranges[0] = start;
+            ranges[1] = end;
+            rangeCount = 1;
+        }
+    }
+
+    void clear() {
+        rangeCount = 0;
+    }
+
+    /**
+     * Marks the first dirty line clean.
+     */
+    void removeFirst() {
+        if (++ranges[0] == ranges[1]) {
+            rangeCount--;
+            System.arraycopy(ranges, 2, ranges, 0, 2 * rangeCount);
+        }
+    }
+
+    /**
+     * Maps the ranges to the line numbers after a change and marks the inserted lines dirty.
+     * @param first first replaced line
+     * @param last last replaced line
+     * @param insertedLines number of lines that replace the lines {@code [first, last]}
+     */
+    void applyChange(int first, int last, int insertedLines) {
+        int delta = insertedLines - (last - first + 1);
+        // range of the inserted lines, merged with the ranges it overlaps or touches
+        int start = first;
+        int end = first + insertedLines;
+
+        if (scratch.length < 2 * rangeCount + 2) scratch = new int[2 * rangeCount + 2];
+        int count = 0;
+        boolean added = false;
+        for (int r = 0; r < rangeCount; r++) {
+            int s = ranges[2 * r];
+            int e = ranges[2 * r + 1];
+            if (e < first) {
+                // before the change
+                scratch[2 * count] = s;
+                scratch[2 * count + 1] = e;
+                count++;
+            } else if (s > last + 1) {
+                // after the change
+                if (!added) {
+                    scratch[2 * count] = start;
+                    scratch[2 * count + 1] = end;
+                    count++;
+                    added = true;
+                }
+                scratch[2 * count] = s + delta;
+                scratch[2 * count + 1] = e + delta;
+                count++;
+            } else {
+                // overlaps or touches the change (lines within the change are replaced)
+                start = Math.min(start, s);
+                if (e > last) end = Math.max(end, e + delta);
+            }
+        }
+        if (!added) {
+            scratch[2 * count] = start;
+            scratch[2 * count + 1] = end;
+            count++;
+        }
+
+        int[] tmp = ranges;
+        ranges = scratch;
+        scratch = tmp;
+        rangeCount = count;
+        if (rangeCount > MAX_RANGES) mergeClosest();
+    }
+
+    /**
+     * Merges the two neighbouring ranges with the smallest gap.
+     */
+    private void mergeClosest() {
+        int closest = 0;
+        for (int r = 1; r < rangeCount - 1; r++) {
+            if (ranges[2 * r + 2] - ranges[2 * r + 1] < ranges[2 * closest + 2] - ranges[2 * closest + 1]) {
+                closest = r;
+            }
+        }
+        ranges[2 * closest + 1] = ranges[2 * closest + 3];
+        rangeCount--;
+        System.arraycopy(ranges, 2 * closest + 4, ranges, 2 * closest + 2, 2 * (rangeCount - closest - 1));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("DirtyLineRanges[");
+        for (int r = 0; r < rangeCount; r++) {
+            if (r > 0) sb.append(", ");
+            sb.append(getStart(r)).append('-').append(getEnd(r));
+        }
+        return sb.append(']').toString();
+    }
+}
@@ -23,56 +23,694 @@
  */
 package eu.mihosoft.monacofx;
 
+import javafx.application.Platform;
 import javafx.beans.property.*;
-import javafx.scene.web.WebEngine;
 import netscape.javascript.JSObject;
 
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
 public class Document {
 
-    private WebEngine engine;
-    private JSObject editor;
-    private JSObject editorGlobal;
+    /**
+     * Default length (characters) above which a document is in large-file mode.
+     */
+    public static final int DEFAULT_LARGE_FILE_LENGTH = 10 * 1024 * 1024;
+
+    /**
+     * Default number of lines above which a document is in large-file mode.
+     */
+    public static final int DEFAULT_LARGE_FILE_LINE_COUNT = 200_000;
+
+    // maximum number of characters transferred to the model per bridge call while loading
+    private static final int LOAD_CHUNK_SIZE = 256 * 1024;
+    // time per pulse spent on transferring loaded content to the model
+    private static final long LOAD_BUDGET_NANOS = 8_000_000;
+    // diffs computed by updateTextAsync() before the content is replaced
+    private static final int UPDATE_TEXT_ATTEMPTS = 3;
+
     private JSObject window;
+    private CommandQueue commands;
+    // monaco model (ITextModel) owned by this document
+    private JSObject model;
+    // id of the model (key of the model in the js 'documentModels' registry)
+    private String modelId;
+    // editor view state (cursor, scroll, folding) saved when another document is shown
+    private Object viewState;
 
-    private boolean updatingText;
+    // java side copy of the monaco model, kept in sync by applying change deltas
+    private TextBuffer buffer = TextBuffer.EMPTY;
+    private final LineIndex lineIndex = new LineIndex();
+    // read by background threads (see MarkerSink), only increases (also if the model is recreated)
+    private volatile int versionId;
+    // versionId = versionBase + version of the monaco model
+    private int versionBase;
+    // content and version published to background threads
+    private volatile DocumentSnapshot snapshot = new DocumentSnapshot(this, TextBuffer.EMPTY, 0);
 
-    private final StringProperty textProperty = new SimpleStringProperty();
+    private final TextProperty textProperty = new TextProperty();
     private final StringProperty languageProperty = new SimpleStringProperty();
-    private final IntegerProperty numberOfLinesProperty = new SimpleIntegerProperty();
+    private final IntegerProperty numberOfLinesProperty = new SimpleIntegerProperty(1);
+    private final ReadOnlyBooleanWrapper largeFileProperty = new ReadOnlyBooleanWrapper();
+    private int largeFileLength = DEFAULT_LARGE_FILE_LENGTH;
+    private int largeFileLineCount = DEFAULT_LARGE_FILE_LINE_COUNT;
+
+    private final ReadOnlyDoubleWrapper loadProgressProperty = new ReadOnlyDoubleWrapper(1);
+    // incremented by load(), pending transfers of previous loads are cancelled
+    private int loadGeneration;
+    // charset of the last loaded file
+    private Charset charset = StandardCharsets.UTF_8;
+    // whether the last loaded file starts with a byte order mark
+    private boolean byteOrderMark;
+
+    // text appended by append() that has not been flushed yet, guarded by itself
+    private final StringBuilder pendingAppend = new StringBuilder();
+    private boolean appendScheduled;
+    // maximum number of lines kept by append() (0: unlimited)
+    private int maxLineCount;
+
+    // created on demand
+    private DecorationStore decorations;
+    private WordIndex wordIndex;
+    private volatile MarkerSink markerSink;
+
+    private final List<Consumer<DocumentChange>> changeListeners = new CopyOnWriteArrayList<>();
+    private final List<Consumer<Document>> disposeListeners = new CopyOnWriteArrayList<>();
 
     private JFunction jsfListener;
 
-    void setEditor(WebEngine engine, JSObject window, JSObject editor) {
-        this.engine = engine;
-        this.editor = editor;
-        this.window = window;
+    public Document() {
+        // lang changes -> js
+        languageProperty.addListener((ov) -> postLanguage());
+        // large files are not tokenized
+        largeFileProperty.addListener((ov) -> postLanguage());
+    }
 
-        // initial text
-        editor.call("setValue", getText());
+    /**
+     * Creates the monaco model of this document in the specified window (if not present).
+     * @param window js window
+     * @param commands command queue of the editor
+     */
+    void setEditor(JSObject window, CommandQueue commands) {
+        if (model != null && this.window == window) return;
 
-        // text changes -> js
-        textProperty.addListener((ov) -> {
-            if(!updatingText) editor.call("setValue", getText());
-        });
+        // a document can only have a model in one web view
+        dispose();
+
+        this.window = window;
+        this.commands = commands;
 
         // keep a global reference because it's garbage collected otherwise
-        jsfListener = new JFunction( args -> {
-            String text = (String) editor.call("getValue");
-            if(text!=null) {
-                try {
-                    updatingText = true;
-                    textProperty().set(text);
-                }finally {
-                    updatingText=false;
+        // text changes <- js
+        jsfListener = new JFunction(this::contentChanged);
+
+        model = (JSObject) commands.call(window, "createModel", getText(), getEffectiveLanguage(), jsfListener);
+        modelId = (String) model.getMember("id");
+        // the new model starts with version 1, continue after the current version
+        int modelVersionId = toInt(model.call("getVersionId"));
+        versionBase = versionId + 1 - modelVersionId;
+        versionId = toVersionId(modelVersionId);
+        snapshot = new DocumentSnapshot(this, buffer, versionId);
+
+        // monaco normalizes line breaks
+        if (toInt(model.call("getValueLength")) != buffer.length()) {
+            applyChanges(new DocumentChange(
+                    new Position(1, 1), buffer.positionAt(buffer.length()), 0, buffer.length(),
+                    (String) model.call("getValue"), versionId, true));
+        }
+
+        if (decorations != null) decorations.attach(commands, modelId);
+        if (markerSink != null) markerSink.attach(commands, modelId);
+    }
+
+    private void postLanguage() {
+        if (model != null) commands.post(CommandQueue.Kind.LANGUAGE, this,
+                "setLanguage", modelId, getEffectiveLanguage());
+    }
+
+    /**
+     * @return language of the monaco model (plain text in large-file mode)
+     */
+    private String getEffectiveLanguage() {
+        return isLargeFile() ? "plaintext" : getLanguage();
+    }
+
+    JSObject getModel() {
+        return model;
+    }
+
+    String getModelId() {
+        return modelId;
+    }
+
+    Object getViewState() {
+        return viewState;
+    }
+
+    void setViewState(Object viewState) {
+        this.viewState = viewState;
+    }
+
+    /**
+     * Disposes the monaco model of this document. The content is kept and a new model is
+     * created if the document is shown again. This document must not be the current
+     * document of an editor.
+     */
+    public void dispose() {
+        if (model != null) commands.call(model, "dispose");
+        if (decorations != null) decorations.detach();
+        if (markerSink != null) markerSink.detach();
+        this.model = null;
+        this.modelId = null;
+        this.viewState = null;
+        this.window = null;
+        this.commands = null;
+        this.jsfListener = null;
+        disposeListeners.forEach(l -> l.accept(this));
+    }
+
+    /**
+     * Called by monaco with the flattened changes of an {@code IModelContentChangedEvent}:
+     * {@code [versionId, isFlush, numChanges, (rangeOffset, rangeLength, text,
+     * startLineNumber, startColumn, endLineNumber, endColumn)*]}.
+     */
+    private Object contentChanged(Object[] args) {
+        int version = toVersionId(toInt(args[0]));
+        boolean flush = Boolean.TRUE.equals(args[1]);
+        int numChanges = toInt(args[2]);
+
+        DocumentChange[] changes = new DocumentChange[numChanges];
+        for (int i = 0; i < numChanges; i++) {
+            int idx = 3 + i * 7;
+            changes[i] = new DocumentChange(
+                    new Position(toInt(args[idx + 3]), toInt(args[idx + 4])),
+                    new Position(toInt(args[idx + 5]), toInt(args[idx + 6])),
+                    toInt(args[idx]), toInt(args[idx + 1]), String.valueOf(args[idx + 2]),
+                    version, flush);
+        }
+
+        applyChanges(changes);
+
+        return null;
+    }
+
+    /**
+     * Converts a version of the monaco model to the version of this document.
+     * @param modelVersionId version of the current monaco model
+     * @return document version
+     */
+    int toVersionId(int modelVersionId) {
+        return versionBase + modelVersionId;
+    }
+
+    private static int toInt(Object value) {
+        return ((Number) value).intValue();
+    }
+
+    /**
+     * Applies the specified changes to the java side copy of the document and notifies listeners.
+     * Changes are applied in the order monaco reports them (descending offsets), each range
+     * referring to the content before the event.
+     * @param changes changes to apply
+     */
+    private void applyChanges(DocumentChange... changes) {
+        for (DocumentChange change : changes) {
+            TextBuffer before = buffer;
+            if (change.flush) {
+                buffer = TextBuffer.of(change.text);
+                lineIndex.reset(change.text);
+            } else {
+                buffer = buffer.replace(change.rangeOffset,
+                        change.rangeOffset + change.rangeLength, change.text);
+                lineIndex.replace(change.rangeOffset, change.rangeLength, change.text);
+            }
+            if (decorations != null) decorations.applyChange(change);
+            if (wordIndex != null) wordIndex.applyChange(before, buffer, change);
+            versionId = change.versionId;
+        }
+        snapshot = new DocumentSnapshot(this, buffer, versionId);
+
+        numberOfLinesProperty.set(lineIndex.getLineCount());
+        boolean wasLargeFile = isLargeFile();
+        updateLargeFile();
+        // in large-file mode the text is not materialized per change (delta-only sync)
+        textProperty.contentChanged(!isLargeFile() || !wasLargeFile);
+
+        for (DocumentChange change : changes) {
+            changeListeners.forEach(l -> l.accept(change));
+        }
+    }
+
+    /**
+     * Replaces the whole content. If the document is attached to an editor the
+     * java side copy is updated by the resulting change event.
+     * @param text new content
+     */
+    private void replaceText(String text) {
+        if (text == null) text = "";
+        if (model == null) {
+            applyChanges(new DocumentChange(
+                    new Position(1, 1), buffer.positionAt(buffer.length()), 0, buffer.length(),
+                    text, versionId + 1, true));
+        } else {
+            commands.call(model, "setValue", text);
+        }
+    }
+
+    /**
+     * Appends the specified text without adding an undo stop, i.e., the appended text is
+     * not undoable. The specified number of characters at the beginning of the content are
+     * removed with the same edit. If the document is attached to an editor the java side copy
+     * is updated by the resulting change event.
+     * @param text text to append
+     * @param trimLength number of characters to remove at the beginning
+     */
+    private void appendText(String text, int trimLength) {
+        if (text.isEmpty() && trimLength == 0) return;
+        if (model == null) {
+            // descending offsets, like the changes reported by monaco
+            Position end = buffer.positionAt(buffer.length());
+            DocumentChange append = new DocumentChange(end, end, buffer.length(), 0, text, versionId + 1, false);
+            if (trimLength == 0) {
+                applyChanges(append);
+            } else {
+                applyChanges(append, new DocumentChange(new Position(1, 1), buffer.positionAt(trimLength),
+                        0, trimLength, "", versionId + 1, false));
+            }
+        } else {
+            commands.call(window, "appendText", model, text, trimLength);
+        }
+    }
+
+    /**
+     * Appends the specified text to the end of the document. May be called from any thread.
+     * Appended text is buffered and applied once per pulse with one edit that is not undoable,
+     * i.e., the undo history does not grow. If a maximum number of lines is set, the oldest
+     * lines are removed with the same edit (see {@link #setMaxLineCount(int)}).
+     * @param text text to append
+     */
+    public void append(CharSequence text) {
+        if (text.length() == 0) return;
+        synchronized (pendingAppend) {
+            pendingAppend.append(text);
+            if (appendScheduled) return;
+            appendScheduled = true;
+        }
+        scheduleAppend();
+    }
+
+    private void scheduleAppend() {
+        if (!Platform.isFxApplicationThread()) {
+            Platform.runLater(this::scheduleAppend);
+        } else if (commands != null) {
+            commands.runOnPulse(pendingAppend, this::flushAppend);
+        } else {
+            flushAppend();
+        }
+    }
+
+    /**
+     * Applies the pending appended text (FX application thread).
+     */
+    private void flushAppend() {
+        String text;
+        synchronized (pendingAppend) {
+            text = pendingAppend.toString();
+            pendingAppend.setLength(0);
+            // the buffer does not keep the capacity of bursts
+            if (pendingAppend.capacity() > LOAD_CHUNK_SIZE) pendingAppend.trimToSize();
+            appendScheduled = false;
+        }
+        if (text.isEmpty()) return;
+
+        int trimLength = 0;
+        if (maxLineCount > 0) {
+            int appendedLineBreaks = 0;
+            for (int i = 0; i < text.length(); i++) {
+                if (text.charAt(i) == '\n') appendedLineBreaks++;
+            }
+            int excess = lineIndex.getLineCount() + appendedLineBreaks - maxLineCount;
+            if (excess >= lineIndex.getLineCount()) {
+                // the appended text alone exceeds the maximum, only its tail is kept
+                trimLength = buffer.length();
+                int skip = excess - lineIndex.getLineCount() + 1;
+                int i = 0;
+                while (skip > 0) {
+                    if (text.charAt(i++) == '\n') skip--;
                 }
-                numberOfLinesProperty.setValue(text.split("\\R").length);
+                text = text.substring(i);
+            } else if (excess > 0) {
+                trimLength = lineIndex.getLineStart(excess);
+            }
+        }
+        appendText(text, trimLength);
+    }
+
+    /**
+     * Sets the maximum number of lines kept by {@link #append(CharSequence)}. If an append
+     * exceeds the maximum, the oldest lines are removed. The content is not trimmed before
+     * the next append.
+     * @param maxLineCount maximum number of lines (0: unlimited)
+     */
+    public void setMaxLineCount(int maxLineCount) {
+        if (maxLineCount < 0) throw new IllegalArgumentException("maxLineCount: " + maxLineCount);
+        this.maxLineCount = maxLineCount;
+    }
+
+    /**
+     * @return maximum number of lines kept by {@link #append(CharSequence)} (0: unlimited)
+     */
+    public int getMaxLineCount() {
+        return maxLineCount;
+    }
+
+    /**
+     * Loads the content of the specified file. The file is read and decoded on a background
+     * thread through NIO channels (large files are memory-mapped). The content is transferred
+     * to the editor in chunks during subsequent pulses to keep the UI responsive (see
+     * {@link #loadProgressProperty()}). The undo history is cleared. A load that is in progress
+     * is cancelled. Must be called from the FX application thread.
+     * @param path file to load
+     * @param charset charset of the file
+     * @return future that is completed after the content has been loaded (on the FX thread)
+     */
+    public CompletableFuture<Void> load(Path path, Charset charset) {
+        int generation = ++loadGeneration;
+        loadProgressProperty.set(0);
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        DocumentIO.submit(() -> DocumentIO.read(path, charset)).whenComplete((content, error) -> {
+            if (generation != loadGeneration) {
+                result.cancel(false);
+            } else if (error != null) {
+                loadProgressProperty.set(1);
+                result.completeExceptionally(error);
+            } else {
+                this.charset = charset;
+                this.byteOrderMark = content.byteOrderMark;
+                loadChunks(content.text, 0, generation, result);
             }
+        });
+        return result;
+    }
+
+    /**
+     * Transfers the loaded content starting at the specified offset until the time budget
+     * of the pulse is exhausted. The first chunk replaces the content (monaco detects the
+     * line break of the model from it), the remaining chunks are appended.
+     */
+    private void loadChunks(TextBuffer content, int offset, int generation, CompletableFuture<Void> result) {
+        if (generation != loadGeneration) {
+            result.cancel(false);
+            return;
+        }
+        long deadline = System.nanoTime() + LOAD_BUDGET_NANOS;
+        do {
+            int end = chunkEnd(content, offset);
+            if (offset == 0) {
+                replaceText(content.substring(0, end));
+            } else {
+                appendText(content.substring(offset, end), 0);
+            }
+            offset = end;
+            // detached documents are loaded at once
+        } while (offset < content.length() && (model == null || System.nanoTime() < deadline));
+
+        if (offset < content.length()) {
+            loadProgressProperty.set((double) offset / content.length());
+            int next = offset;
+            commands.runOnPulse(loadProgressProperty, () -> loadChunks(content, next, generation, result));
+        } else {
+            loadProgressProperty.set(1);
+            result.complete(null);
+        }
+    }
+
+    /**
+     * @return end of the chunk starting at the specified offset, line breaks ({@code \r\n})
+     * and surrogate pairs are not split
+     */
+    private static int chunkEnd(TextBuffer content, int offset) {
+        int end = Math.min(content.length(), offset + LOAD_CHUNK_SIZE);
+        if (end < content.length()) {
+            char c = content.charAt(end - 1);
+            if (c == '\r' || Character.isHighSurrogate(c)) end--;
+        }
+        return end;
+    }
+
+    /**
+     * Progress of the current load (see {@link #load(Path, Charset)}) between 0 and 1.
+     * The value is 1 if no load is in progress.
+     * @return load progress property
+     */
+    public ReadOnlyDoubleProperty loadProgressProperty() {
+        return loadProgressProperty.getReadOnlyProperty();
+    }
+
+    /**
+     * Saves the content to the specified file using the charset of the last loaded file
+     * (UTF-8 by default). A byte order mark is written if the last loaded file started
+     * with one.
+     * @param path file to save
+     * @return future that is completed after the content has been saved (on the FX thread)
+     * @see #save(Path, Charset)
+     */
+    public CompletableFuture<Void> save(Path path) {
+        return save(path, charset);
+    }
+
+    /**
+     * Saves the current content to the specified file. The content is streamed from the
+     * java side copy of the document on a background thread, i.e., it is not materialized
+     * as string. The file is replaced after the content has been written completely. A byte
+     * order mark is written if the last loaded file started with one and had the same charset.
+     * Must be called from the FX application thread.
+     * @param path file to save
+     * @param charset charset of the file
+     * @return future that is completed after the content has been saved (on the FX thread)
+     */
+    public CompletableFuture<Void> save(Path path, Charset charset) {
+        TextBuffer content = buffer;
+        boolean writeByteOrderMark = byteOrderMark && charset.equals(this.charset);
+        return DocumentIO.submit(() -> {
+            DocumentIO.write(content, path, charset, writeByteOrderMark);
             return null;
         });
+    }
 
-        // text changes <- js
-        window.setMember("contentChangeListener", jsfListener);
+    /**
+     * Adds a listener that is notified about every content change. Listeners are
+     * invoked after the java side copy of the document has been updated.
+     * @param listener listener to add
+     */
+    public void addChangeListener(Consumer<DocumentChange> listener) {
+        changeListeners.add(listener);
+    }
+
+    /**
+     * Removes the specified change listener.
+     * @param listener listener to remove
+     */
+    public void removeChangeListener(Consumer<DocumentChange> listener) {
+        changeListeners.remove(listener);
+    }
+
+    /**
+     * Adds a listener that is notified when the monaco model of this document is disposed
+     * (e.g., to release per-document state of providers).
+     * @param listener listener to add
+     */
+    void addDisposeListener(Consumer<Document> listener) {
+        disposeListeners.add(listener);
+    }
+
+    void removeDisposeListener(Consumer<Document> listener) {
+        disposeListeners.remove(listener);
+    }
+
+    /**
+     * Returns the decorations of this document. Decorations are kept when the document
+     * is shown in another editor.
+     * @return the decoration store of this document
+     */
+    public DecorationStore getDecorations() {
+        if (decorations == null) {
+            decorations = new DecorationStore(this);
+            if (model != null) decorations.attach(commands, modelId);
+        }
+        return decorations;
+    }
+
+    /**
+     * Returns the word index of this document. The index is built on first access and
+     * updated incrementally afterwards. Must be called from the FX application thread.
+     * @return the word index of this document
+     */
+    public WordIndex getWordIndex() {
+        if (wordIndex == null) {
+            wordIndex = new WordIndex();
+            wordIndex.reset(buffer);
+        }
+        return wordIndex;
+    }
+
+    /**
+     * Returns the marker sink of this document. May be called from any thread.
+     * @return the marker sink of this document
+     */
+    public MarkerSink getMarkerSink() {
+        MarkerSink sink = markerSink;
+        if (sink == null) {
+            synchronized (this) {
+                sink = markerSink;
+                if (sink == null) {
+                    sink = new MarkerSink(this);
+                    markerSink = sink;
+                }
+            }
+            // the sink is attached on the FX thread
+            if (Platform.isFxApplicationThread()) {
+                attachMarkerSink();
+            } else {
+                Platform.runLater(this::attachMarkerSink);
+            }
+        }
+        return sink;
+    }
+
+    private void attachMarkerSink() {
+        if (model != null) markerSink.attach(commands, modelId);
+    }
 
+    /**
+     * Returns an immutable view of the current content and its model version. Taking a
+     * snapshot is {@code O(1)}, snapshots share the unmodified parts of the content. May be
+     * called from any thread (returns the content of the last change applied on the FX
+     * application thread).
+     * @return snapshot of the current content
+     */
+    public DocumentSnapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Returns the current content as immutable text buffer. In contrast to {@link #getText()}
+     * this does not materialize the content as string.
+     * @return the current content
+     */
+    TextBuffer getTextBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Returns the specified range of the content.
+     * @param start start offset (inclusive)
+     * @param end end offset (exclusive)
+     * @return content of the range
+     */
+    public String getText(int start, int end) {
+        return buffer.substring(start, end);
+    }
+
+    /**
+     * Returns the content between the specified positions. The positions may be
+     * specified in any order.
+     * @param start start position (1-based line number and column)
+     * @param end end position (1-based line number and column)
+     * @return content of the range
+     */
+    public String getText(Position start, Position end) {
+        int startOffset = offsetAt(start);
+        int endOffset = offsetAt(end);
+        return buffer.substring(Math.min(startOffset, endOffset), Math.max(startOffset, endOffset));
+    }
+
+    /**
+     * Replaces the content between the specified positions with the specified text
+     * as one undoable operation. The positions may be specified in any order.
+     * @param start start position (1-based line number and column)
+     * @param end end position (1-based line number and column)
+     * @param text replacement text
+     */
+    public void replace(Position start, Position end, String text) {
+        int startOffset = offsetAt(start);
+        int endOffset = offsetAt(end);
+        int offset = Math.min(startOffset, endOffset);
+        applyEdits(List.of(new TextEdit(offset, Math.abs(endOffset - startOffset), text)));
+    }
+
+    /**
+     * @return length of the content
+     */
+    public int getLength() {
+        return buffer.length();
+    }
+
+    /**
+     * @return number of lines of the content
+     */
+    public int getLineCount() {
+        return lineIndex.getLineCount();
+    }
+
+    /**
+     * Returns the content of the specified line without line break.
+     * @param lineNumber line number (1-based)
+     * @return content of the line
+     */
+    public String getLine(int lineNumber) {
+        int lineStart = lineIndex.getLineStart(lineNumber - 1);
+        return buffer.substring(lineStart, getLineEnd(lineNumber - 1, lineStart));
+    }
+
+    /**
+     * Converts the specified position to an offset. Positions outside of the content are
+     * clamped to the nearest valid position.
+     * @param position position (1-based line number and column)
+     * @return offset (0-based)
+     */
+    public int offsetAt(Position position) {
+        int line = Math.max(0, Math.min(position.lineNumber - 1, lineIndex.getLineCount() - 1));
+        int lineStart = lineIndex.getLineStart(line);
+        int lineLength = getLineEnd(line, lineStart) - lineStart;
+        return lineStart + Math.max(0, Math.min(position.column - 1, lineLength));
+    }
+
+    /**
+     * Converts the specified offset to a position.
+     * @param offset offset (0-based), clamped to the content range
+     * @return position (1-based line number and column)
+     */
+    public Position positionAt(int offset) {
+        offset = Math.max(0, Math.min(offset, buffer.length()));
+        int line = lineIndex.getLineIndex(offset);
+        int lineStart = lineIndex.getLineStart(line);
+        int lineLength = getLineEnd(line, lineStart) - lineStart;
+        return new Position(line + 1, Math.min(offset - lineStart, lineLength) + 1);
+    }
+
+    private int getLineEnd(int line, int lineStart) {
+        if (line + 1 == lineIndex.getLineCount()) return buffer.length();
+        int lineBreak = lineIndex.getLineStart(line + 1) - 1;
+        if (lineBreak > lineStart && buffer.charAt(lineBreak - 1) == '\r') return lineBreak - 1;
+        return lineBreak;
+    }
+
+    /**
+     * Returns the version of the content. The version increases with every change, also
+     * across monaco models (e.g. if the document is shown in another editor), i.e., it is
+     * the version of the current monaco model plus an offset.
+     * @return version id
+     */
+    public int getVersionId() {
+        return versionId;
     }
 
     public StringProperty textProperty() {
@@ -80,17 +718,7 @@ public class Document {
     }
 
     public void setText(String text) {
-        if(editor==null) {
-            textProperty.set(text);
-        } else {
-            try {
-                updatingText = true;
-                textProperty().set(text);
-            }finally {
-                updatingText=false;
-            }
-            editor.call("setValue", text);
-        }
+        textProperty().set(text);
     }
 
     public String getText() {
@@ -101,6 +729,45 @@ public class Document {
         return numberOfLinesProperty;
     }
 
+    /**
+     * Whether this document is in large-file mode, i.e., its length or number of lines
+     * exceeds the large-file thresholds (see {@link #setLargeFileThresholds(int, int)}).
+     * In large-file mode
+     * <ul>
+     *     <li>the document is not tokenized (the monaco model is plain text),</li>
+     *     <li>editors showing the document disable minimap, folding, word-based suggestions,
+     *     bracket matching and other features that process the whole content,</li>
+     *     <li>listeners of {@link #textProperty()} are not notified about content changes
+     *     (delta-only sync, use {@link #addChangeListener(Consumer)}), {@link #getText()}
+     *     returns the current content.</li>
+     * </ul>
+     * @return large-file mode property
+     */
+    public ReadOnlyBooleanProperty largeFileProperty() {
+        return largeFileProperty.getReadOnlyProperty();
+    }
+
+    public boolean isLargeFile() {
+        return largeFileProperty.get();
+    }
+
+    /**
+     * Sets the thresholds of the large-file mode. Defaults are
+     * {@link #DEFAULT_LARGE_FILE_LENGTH} and {@link #DEFAULT_LARGE_FILE_LINE_COUNT}.
+     * @param length length (characters) above which the document is in large-file mode
+     * @param lineCount number of lines above which the document is in large-file mode
+     */
+    public void setLargeFileThresholds(int length, int lineCount) {
+        this.largeFileLength = length;
+        this.largeFileLineCount = lineCount;
+        updateLargeFile();
+    }
+
+    private void updateLargeFile() {
+        largeFileProperty.set(buffer.length() > largeFileLength
+                || lineIndex.getLineCount() > largeFileLineCount);
+    }
+
     public StringProperty languageProperty() {
         return languageProperty;
     }
@@ -114,10 +781,142 @@ public class Document {
     }
 
     /**
-     * used to update the text in the editor without losing the document history
+     * used to update the text in the editor without losing the document history.
+     * Only the ranges that differ from the current content are sent to the editor.
+     * Cursor, folding state and undo history are preserved.
      * @param text the text in editor is replaced byt this text
      */
     public void updateText(String text) {
-        window.call("updateText", text);
+        if (model == null) {
+            replaceText(text);
+            return;
+        }
+        applyEdits(TextDiff.compute(getText(), normalizeLineBreaks(text)));
+    }
+
+    /**
+     * Same as {@link #updateText(String)} but the difference is computed on a background
+     * thread. Use this for large texts. If the content changes while the difference is
+     * computed, it is computed again (the content is replaced if it keeps changing). Must be
+     * called from the FX application thread.
+     * @param text the text in editor is replaced byt this text
+     * @return future that is completed after the text has been updated (on the FX thread)
+     */
+    public CompletableFuture<Void> updateTextAsync(String text) {
+        if (model == null) {
+            replaceText(text);
+            return CompletableFuture.completedFuture(null);
+        }
+        return updateTextAsync(text, normalizeLineBreaks(text), UPDATE_TEXT_ATTEMPTS);
+    }
+
+    private CompletableFuture<Void> updateTextAsync(String text, String normalizedText, int attempts) {
+        TextBuffer content = buffer;
+        int version = versionId;
+        return CompletableFuture.supplyAsync(() -> TextDiff.compute(content.toString(), normalizedText))
+                .thenComposeAsync(edits -> {
+                    if (version == versionId) {
+                        applyEdits(edits);
+                    } else if (attempts > 1) {
+                        // content changed in the meantime
+                        return updateTextAsync(text, normalizedText, attempts - 1);
+                    } else {
+                        replaceText(text);
+                    }
+                    return CompletableFuture.<Void>completedFuture(null);
+                }, Platform::runLater);
+    }
+
+    /**
+     * Applies the specified edits as one undoable operation. All edits refer to the current
+     * content and must not overlap.
+     * @param edits edits to apply
+     */
+    public void applyEdits(List<TextEdit> edits) {
+        if (edits.isEmpty()) return;
+
+        if (model == null) {
+            // apply in descending order, so that each range is still valid
+            List<TextEdit> sorted = new ArrayList<>(edits);
+            sorted.sort(Comparator.comparingInt((TextEdit e) -> e.offset).reversed());
+            DocumentChange[] changes = new DocumentChange[sorted.size()];
+            for (int i = 0; i < changes.length; i++) {
+                TextEdit edit = sorted.get(i);
+                changes[i] = new DocumentChange(
+                        positionAt(edit.offset), positionAt(edit.offset + edit.length),
+                        edit.offset, edit.length, edit.text, versionId + 1, false);
+            }
+            applyChanges(changes);
+            return;
+        }
+
+        Object[] args = new Object[1 + edits.size() * 3];
+        args[0] = model;
+        for (int i = 0; i < edits.size(); i++) {
+            TextEdit edit = edits.get(i);
+            args[1 + i * 3] = edit.offset;
+            args[2 + i * 3] = edit.length;
+            args[3 + i * 3] = edit.text;
+        }
+        commands.call(window, "applyEdits", args);
+    }
+
+    /**
+     * Converts all line breaks of the specified text to the line break used by this
+     * document (monaco normalizes line breaks of the model).
+     */
+    private String normalizeLineBreaks(String text) {
+        String lineBreak = "\n";
+        if (lineIndex.getLineCount() > 1) {
+            int firstBreak = lineIndex.getLineStart(1) - 1;
+            if (firstBreak > 0 && buffer.charAt(firstBreak - 1) == '\r') lineBreak = "\r\n";
+        }
+        return text.replaceAll("\\r\\n|\\r|\\n", lineBreak);
+    }
+
+    /**
+     * Text property backed by the java side copy of the document. The string value is only
+     * materialized when requested, i.e., content changes just invalidate the property.
+     */
+    private final class TextProperty extends StringPropertyBase {
+
+        private String text;
+
+        void contentChanged(boolean notifyListeners) {
+            text = null;
+            if (notifyListeners) fireValueChangedEvent();
+        }
+
+        @Override
+        public String get() {
+            if (text == null) {
+                text = buffer.toString();
+            }
+            return text;
+        }
+
+        @Override
+        public void set(String newValue) {
+            if (isBound()) {
+                throw new RuntimeException("Document.text : A bound value cannot be set.");
+            }
+            replaceText(newValue);
+        }
+
+        @Override
+        protected void invalidated() {
+            // only called if the property is bound to another observable
+            replaceText(super.get());
+        }
+
+        @Override
+        public Object getBean() {
+            return Document.this;
+        }
+
+        @Override
+        public String getName() {
+            return "text";
+        }
     }
 }
@@ -0,0 +1,58 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+/**
+ * A single content change of a {@link Document} as reported by Monaco's
+ * {@code IModelContentChangedEvent}. The range refers to the document content
+ * before the change was applied. Line numbers and columns are 1-based, offsets
+ * are 0-based (UTF-16 code units).
+ */
+public final class DocumentChange {
+    /** start of the replaced range */
+    public final Position start;
+    /** end of the replaced range */
+    public final Position end;
+    /** offset of the replaced range */
+    public final int rangeOffset;
+    /** length of the replaced range */
+    public final int rangeLength;
+    /** the new text for the range */
+    public final String text;
+    /** model version after the change */
+    public final int versionId;
+    /** whether the change replaced the whole content (e.g. via {@code setValue}) */
+    public final boolean flush;
+
+    public DocumentChange(Position start, Position end, int rangeOffset, int rangeLength,
+                          String text, int versionId, boolean flush) {
+        this.start = start;
+        this.end = end;
+        this.rangeOffset = rangeOffset;
+        this.rangeLength = rangeLength;
+        this.text = text;
+        this.versionId = versionId;
+        this.flush = flush;
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+import javafx.application.Platform;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Reads and writes document content through NIO channels (see {@link Document#load(Path, Charset)}).
+ */
+final class DocumentIO {
+
+    // files larger than this are memory-mapped
+    private static final long MAP_THRESHOLD = 1024 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final char BYTE_ORDER_MARK = '\uFEFF';
+    // permissions of new files (rw-r--r--)
+    private static final Set<PosixFilePermission> DEFAULT_PERMISSIONS = PosixFilePermissions.fromString("rw-r--r--");
+
+    /**
+     * Executor for blocking file operations.
+     */
+    static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "MonacoFX Document IO");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private DocumentIO() {
+        throw new AssertionError("Don't instantiate me!");
+    }
+
+    /**
+     * Decoded content of a file.
+     */
+    static final class FileContent {
+        /** content without byte order mark */
+        final TextBuffer text;
+        /** whether the file starts with a byte order mark */
+        final boolean byteOrderMark;
+
+        FileContent(TextBuffer text, boolean byteOrderMark) {
+            this.text = text;
+            this.byteOrderMark = byteOrderMark;
+        }
+    }
+
+    /**
+     * File operation that may throw an {@link IOException}.
+     * @param <T> result type
+     */
+    interface IOTask<T> {
+        T run() throws IOException;
+    }
+
+    /**
+     * Runs the specified task on the IO executor.
+     * @param task task to run
+     * @param <T> result type
+     * @return future that is completed on the FX application thread
+     */
+    static <T> CompletableFuture<T> submit(IOTask<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        EXECUTOR.execute(() -> {
+            try {
+                T value = task.run();
+                Platform.runLater(() -> result.complete(value));
+            } catch (IOException | RuntimeException ex) {
+                Platform.runLater(() -> result.completeExceptionally(ex));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Reads the specified file. Malformed input is replaced, a byte order mark is removed.
+     * @param path file to read
+     * @param charset charset of the file
+     * @return content of the file
+     * @throws IOException if the file cannot be read
+     */
+    static FileContent read(Path path, Charset charset) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer in;
+            if (size > MAP_THRESHOLD) {
+                in = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } else {
+                in = ByteBuffer.allocate((int) size);
+                while (in.hasRemaining() && channel.read(in) >= 0) {
+                    // read until the buffer is full
+                }
+                in.flip();
+            }
+            return decode(in, charset);
+        }
+    }
+
+    private static FileContent decode(ByteBuffer in, Charset charset) throws CharacterCodingException {
+        CharsetDecoder decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        CharBuffer out = CharBuffer.allocate(BUFFER_SIZE);
+        TextBuffer content = TextBuffer.EMPTY;
+        boolean endOfInput = false;
+        while (true) {
+            CoderResult result = endOfInput ? decoder.flush(out) : decoder.decode(in, out, true);
+            if (result.isError()) result.throwException();
+            if (result.isUnderflow()) {
+                if (endOfInput) {
+                    content = append(content, out);
+                    break;
+                }
+                endOfInput = true;
+            } else {
+                // overflow
+                content = append(content, out);
+            }
+        }
+        // skip byte order mark (the decoder of UTF-8 keeps it)
+        boolean byteOrderMark = content.length() > 0 && content.charAt(0) == BYTE_ORDER_MARK;
+        if (byteOrderMark) content = content.delete(0, 1);
+        return new FileContent(content, byteOrderMark);
+    }
+
+    private static TextBuffer append(TextBuffer content, CharBuffer chars) {
+        chars.flip();
+        TextBuffer result = content.insert(content.length(), chars);
+        chars.clear();
+        return result;
+    }
+
+    /**
+     * Writes the specified content to a temporary file that replaces the specified file
+     * when complete. Symbolic links are followed, i.e., the link target is replaced. The
+     * POSIX permissions of an existing file are kept.
+     * @param content content to write
+     * @param path file to write
+     * @param charset charset of the file
+     * @param byteOrderMark whether a byte order mark is written before the content
+     * @throws IOException if the file cannot be written
+     */
+    static void write(TextBuffer content, Path path, Charset charset, boolean byteOrderMark) throws IOException {
+        boolean exists = Files.exists(path);
+        Path absolutePath = exists ? path.toRealPath() : path.toAbsolutePath();
+        Path tmp = Files.createTempFile(absolutePath.getParent(), "." + absolutePath.getFileName(), ".tmp");
+        try {
+            // the temporary file is only accessible by the owner
+            if (Files.getFileStore(tmp).supportsFileAttributeView(PosixFileAttributeView.class)) {
+                Files.setPosixFilePermissions(tmp, exists
+                        ? Files.getPosixFilePermissions(absolutePath) : DEFAULT_PERMISSIONS);
+            }
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                CharsetEncoder encoder = charset.newEncoder()
+                        .onMalformedInput(CodingErrorAction.REPLACE)
+                        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+                // chunks are copied into the input buffer, i.e., surrogate pairs split
+                // between chunks are kept for the next encode call
+                CharBuffer in = CharBuffer.allocate(BUFFER_SIZE);
+                ByteBuffer out = ByteBuffer.allocate(BUFFER_SIZE);
+                if (byteOrderMark) in.put(BYTE_ORDER_MARK);
+                IOException[] error = new IOException[1];
+                content.forEachChunk(0, content.length(), chunk -> {
+                    for (int i = 0; i < chunk.length() && error[0] == null; ) {
+                        int n = Math.min(in.remaining(), chunk.length() - i);
+                        in.append(chunk, i, i + n);
+                        i += n;
+                        if (in.hasRemaining()) continue;
+                        try {
+                            encode(encoder, in, out, channel, false);
+                        } catch (IOException ex) {
+                            error[0] = ex;
+                        }
+                    }
+                });
+                if (error[0] != null) throw error[0];
+                encode(encoder, in, out, channel, true);
+                while (encoder.flush(out).isOverflow()) {
+                    writeFully(out, channel);
+                }
+                writeFully(out, channel);
+                channel.force(false);
+            }
+            try {
+                Files.move(tmp, absolutePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException ex) {
+                // atomic move not supported
+                Files.move(tmp, absolutePath, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Encodes the content of the specified input buffer (write mode), unconsumed characters
+     * are kept in the buffer.
+     */
+    private static void encode(CharsetEncoder encoder, CharBuffer in, ByteBuffer out,
+                               FileChannel channel, boolean endOfInput) throws IOException {
+        in.flip();
+        while (true) {
+            CoderResult result = encoder.encode(in, out, endOfInput);
+            if (result.isError()) result.throwException();
+            if (result.isUnderflow()) break;
+            writeFully(out, channel);
+        }
+        in.compact();
+    }
+
+    private static void writeFully(ByteBuffer out, FileChannel channel) throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+/**
+ * Immutable view of the content of a {@link Document} at a model version (see
+ * {@link Document#snapshot()}). Snapshots share the nodes of the document's text buffer,
+ * i.e., taking a snapshot is {@code O(1)} and snapshots of different versions only differ
+ * by the nodes touched by the edits in between. Thread-safe.
+ *
+ * <p>Line numbers and columns are 1-based, offsets are 0-based.</p>
+ */
+public final class DocumentSnapshot {
+
+    private final Document document;
+    private final TextBuffer text;
+    private final int versionId;
+
+    DocumentSnapshot(Document document, TextBuffer text, int versionId) {
+        this.document = document;
+        this.text = text;
+        this.versionId = versionId;
+    }
+
+    /**
+     * @return the document this snapshot has been taken of
+     */
+    public Document getDocument() {
+        return document;
+    }
+
+    /**
+     * Returns the version of the monaco model the content corresponds to.
+     * @return model version id
+     */
+    public int getVersionId() {
+        return versionId;
+    }
+
+    /**
+     * @return {@code true} if the document has not been changed since the snapshot was taken
+     */
+    public boolean isCurrent() {
+        return document.getVersionId() == versionId;
+    }
+
+    /**
+     * @return the content as text buffer
+     */
+    public TextBuffer getTextBuffer() {
+        return text;
+    }
+
+    /**
+     * @return length of the content
+     */
+    public int getLength() {
+        return text.length();
+    }
+
+    /**
+     * @param offset offset
+     * @return character at the specified offset
+     */
+    public char charAt(int offset) {
+        return text.charAt(offset);
+    }
+
+    /**
+     * Returns the whole content (materializes the content as string).
+     * @return the content
+     */
+    public String getText() {
+        return text.toString();
+    }
+
+    /**
+     * Returns the specified range of the content.
+     * @param start start offset (inclusive)
+     * @param end end offset (exclusive)
+     * @return content of the range
+     */
+    public String getText(int start, int end) {
+        return text.substring(start, end);
+    }
+
+    /**
+     * Returns the content between the specified positions. The positions may be
+     * specified in any order.
+     * @param start start position
+     * @param end end position
+     * @return content of the range
+     */
+    public String getText(Position start, Position end) {
+        int startOffset = text.offsetAt(start);
+        int endOffset = text.offsetAt(end);
+        return text.substring(Math.min(startOffset, endOffset), Math.max(startOffset, endOffset));
+    }
+
+    /**
+     * @return number of lines of the content
+     */
+    public int getLineCount() {
+        return text.getLineCount();
+    }
+
+    /**
+     * Returns the content of the specified line without line break.
+     * @param lineNumber line number
+     * @return content of the line
+     */
+    public String getLine(int lineNumber) {
+        return text.getLine(lineNumber);
+    }
+
+    /**
+     * @param lineNumber line number
+     * @return offset of the first character of the specified line
+     */
+    public int getLineStart(int lineNumber) {
+        return text.getLineStart(lineNumber);
+    }
+
+    /**
+     * @param lineNumber line number
+     * @return length of the specified line without line break
+     */
+    public int getLineLength(int lineNumber) {
+        return text.getLineLength(lineNumber);
+    }
+
+    /**
+     * @param offset offset (0 to {@link #getLength()})
+     * @return number of the line that contains the specified offset
+     */
+    public int getLineNumber(int offset) {
+        return text.getLineNumber(offset);
+    }
+
+    /**
+     * Converts the specified position to an offset. Positions outside of the content are
+     * clamped to the nearest valid position.
+     * @param position position
+     * @return offset
+     */
+    public int offsetAt(Position position) {
+        return text.offsetAt(position);
+    }
+
+    /**
+     * Converts the specified offset to a position.
+     * @param offset offset, clamped to the content range
+     * @return position
+     */
+    public Position positionAt(int offset) {
+        return text.positionAt(offset);
+    }
+
+    @Override
+    public String toString() {
+        return "DocumentSnapshot[versionId=" + versionId + ", length=" + text.length() + "]";
+    }
+}
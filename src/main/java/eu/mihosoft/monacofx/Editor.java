@@ -23,7 +23,12 @@
  */
 package eu.mihosoft.monacofx;
 
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.SimpleBooleanProperty;
+import javafx.beans.property.SimpleIntegerProperty;
+import javafx.beans.value.ChangeListener;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
@@ -33,21 +38,42 @@ import javafx.collections.ObservableList;
 import javafx.scene.web.WebEngine;
 import netscape.javascript.JSObject;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
 public final class Editor {
 
+    private static final String DEFAULT_THEME = "vs";
+    private static final String DEFAULT_LANGUAGE = "plaintext";
+
     private final WebEngine engine;
     private JSObject window;
     private JSObject editor;
     private final ViewController viewController;
+    private final PulseCoalescer pulseCoalescer = new PulseCoalescer();
+    private final CommandQueue commands;
+    // pending provider requests (foldings, completions) by request id
+    private final Map<Integer, CancellationToken> pendingRequests = new HashMap<>();
+    private JFunction requestCancelListener;
+    private final ProviderCache providerCache = new ProviderCache();
     private final ObjectProperty<Document> documentProperty = new SimpleObjectProperty<>();
     private final ObservableList<LanguageSupport> languages = FXCollections.observableArrayList();
     private final ObservableList<EditorTheme> themes = FXCollections.observableArrayList();
 
     private final StringProperty currentThemeProperty = new SimpleStringProperty();
     private final StringProperty currentLanguageProperty = new SimpleStringProperty();
+    private final BooleanProperty readOnlyProperty = new SimpleBooleanProperty();
+    private final IntegerProperty lineNumberOffsetProperty = new SimpleIntegerProperty();
 
     Editor(WebEngine engine) {
         this.engine = engine;
+        this.commands = new CommandQueue(pulseCoalescer);
         this.viewController = new ViewController(this);
         Document document = new Document();
         setDocument(document);
@@ -65,49 +91,294 @@ public final class Editor {
         return engine;
     }
 
-    private void registerLanguageJS(LanguageSupport l) {
+    PulseCoalescer getPulseCoalescer() {
+        return pulseCoalescer;
+    }
 
-        String registerScript = "require(['vs/editor/editor.main'], function() {\n";
+    CommandQueue getCommandQueue() {
+        return commands;
+    }
 
-        String registerLang = "monaco.languages.register({ id: '"+ l.getName() + "' })\n";
+    private void registerLanguageJS(LanguageSupport l) {
+        // monarch grammars may contain regular expressions, i.e., they are js source and
+        // sent as string (compiled once per web view, see registerLanguage() in index.html)
+        String monarchSource = l.getMonarchSyntaxHighlighter() == null
+                ? null : l.getMonarchSyntaxHighlighter().getRules();
 
-        registerScript+=registerLang;
+        boolean hasFoldingProvider = l.getAsyncFoldingProvider() != null || l.getFoldingProvider() != null;
+        if (hasFoldingProvider) {
+            window.setMember(("foldingProvider_" + l.getName()),
+                    new JFunction((args) -> provideFoldings(l, args))
+            );
+        }
 
-        if(l.getMonarchSyntaxHighlighter()!=null) {
-            String registerMonarch = "monaco.languages.setMonarchTokensProvider(\"" + l.getName() + "\", {\n"
-                    + l.getMonarchSyntaxHighlighter().getRules()
-                    + "})\n";
-            registerScript+=registerMonarch;
+        // initial state of the java tokens provider (null: no tokens provider)
+        Integer initialTokensState = null;
+        if (l.getTokensProvider() != null) {
+            TokenizationSupport<?> tokenization = new TokenizationSupport<>(l.getTokensProvider(), this);
+            initialTokensState = tokenization.getInitialStateId();
+            window.setMember("tokensProvider_" + l.getName(), new JFunction(tokenization::tokenize));
         }
 
-        if(l.getFoldingProvider()!=null) {
-            window.setMember(("foldingProvider_" + l.getName()),
-                    new JFunction((args) -> l.getFoldingProvider().computeFoldings(this))
-            );
+        if (l.getCompletionProvider() != null) {
+            window.setMember("completionProvider_" + l.getName(),
+                    new JFunction((args) -> provideCompletions(l, args)));
+        }
+        if (l.getHoverProvider() != null) {
+            window.setMember("hoverProvider_" + l.getName(),
+                    new JFunction((args) -> provideHover(l, args)));
+        }
+        if (l.getDefinitionProvider() != null) {
+            window.setMember("definitionProvider_" + l.getName(),
+                    new JFunction((args) -> provideDefinition(l, args)));
+        }
+        if (l.getSymbolExtractor() != null) {
+            window.setMember("documentSymbolProvider_" + l.getName(),
+                    new JFunction((args) -> provideDocumentSymbols(l, args)));
+        }
 
+        String providers = new JsonWriter().beginObject()
+                .name("folding").value(hasFoldingProvider)
+                .name("initialTokensState").value(initialTokensState)
+                .name("completion").value(l.getCompletionProvider() != null)
+                .name("hover").value(l.getHoverProvider() != null)
+                .name("definition").value(l.getDefinitionProvider() != null)
+                .name("documentSymbols").value(l.getSymbolExtractor() != null)
+                .endObject().toString();
+
+        commands.post(CommandQueue.Kind.CALL, null, "registerLanguage",
+                l.getName(), monarchSource, JsonWriter.raw(providers));
+    }
 
-            String registerFoldingProvider = "monaco.languages.registerFoldingRangeProvider('mylang', {\n"
-                    + "         provideFoldingRanges: function(model, context, token) {\n"
-                    + "     return foldingProvider_" + l.getName() + ".apply([model,context,token]);\n"
-                    + "}\n"
-                    + "});\n";
+    /**
+     * Called by monaco with {@code [requestId, modelId, versionId]}. The result is sent
+     * with {@code resolveRequest()} once the provider completes.
+     */
+    private Object provideFoldings(LanguageSupport l, Object[] args) {
+        int requestId = ((Number) args[0]).intValue();
+        String modelId = (String) args[1];
+        int modelVersionId = ((Number) args[2]).intValue();
+
+        Document document = getRequestDocument(requestId, modelId, modelVersionId);
+        if (document == null) return null;
+        int versionId = document.getVersionId();
+
+        runRequest(requestId, document, versionId, token -> {
+            if (l.getAsyncFoldingProvider() != null) {
+                return l.getAsyncFoldingProvider().computeFoldings(
+                        document, document.getTextBuffer(), versionId, token);
+            }
+            Folding[] foldings = l.getFoldingProvider().computeFoldings(this);
+            return CompletableFuture.completedFuture(
+                    foldings == null ? List.<Folding>of() : Arrays.asList(foldings));
+        }, Folding::toJSON);
 
-            registerScript+=registerFoldingProvider;
+        return null;
+    }
+
+    /**
+     * Called by monaco with {@code [requestId, modelId, versionId, lineNumber, column, prefix]}.
+     * The result is sent with {@code resolveRequest()} once the provider completes.
+     */
+    private Object provideCompletions(LanguageSupport l, Object[] args) {
+        int requestId = ((Number) args[0]).intValue();
+        String modelId = (String) args[1];
+        int modelVersionId = ((Number) args[2]).intValue();
+        Position position = new Position(((Number) args[3]).intValue(), ((Number) args[4]).intValue());
+        String prefix = String.valueOf(args[5]);
+
+        Document document = getRequestDocument(requestId, modelId, modelVersionId);
+        if (document == null) return null;
+        int versionId = document.getVersionId();
+
+        runRequest(requestId, document, versionId, token -> l.getCompletionProvider().computeCompletions(
+                document, document.getTextBuffer(), versionId, position, prefix, token), CompletionItem::toJSON);
+
+        return null;
+    }
+
+    /**
+     * Called by monaco with {@code [requestId, modelId, versionId, lineNumber, column,
+     * wordStartColumn, wordEndColumn]}. Results are cached (see {@link ProviderCache}).
+     */
+    private Object provideHover(LanguageSupport l, Object[] args) {
+        provideCached(args, "hover", Hover::toJSON, (document, position, token) -> l.getHoverProvider().computeHover(
+                document, document.getTextBuffer(), document.getVersionId(), position, token));
+        return null;
+    }
+
+    /**
+     * Called by monaco with {@code [requestId, modelId, versionId, lineNumber, column,
+     * wordStartColumn, wordEndColumn]}. Results are cached (see {@link ProviderCache}).
+     */
+    private Object provideDefinition(LanguageSupport l, Object[] args) {
+        provideCached(args, "definition", Location::toJSON, (document, position, token) -> l.getDefinitionProvider()
+                .computeDefinition(document, document.getTextBuffer(), document.getVersionId(), position, token));
+        return null;
+    }
+
+    /**
+     * Called by monaco with {@code [requestId, modelId, versionId]}. Symbols are extracted
+     * from a snapshot of the document on a background thread.
+     */
+    private Object provideDocumentSymbols(LanguageSupport l, Object[] args) {
+        int requestId = ((Number) args[0]).intValue();
+        String modelId = (String) args[1];
+        int modelVersionId = ((Number) args[2]).intValue();
+
+        Document document = getRequestDocument(requestId, modelId, modelVersionId);
+        if (document == null) return null;
+        int versionId = document.getVersionId();
+
+        TextBuffer text = document.getTextBuffer();
+        runRequest(requestId, document, versionId, token -> CompletableFuture.supplyAsync(
+                () -> SymbolIndex.extractSymbols(l.getSymbolExtractor(), document, text, token)), Symbol::toJSON);
+
+        return null;
+    }
+
+    /**
+     * Position-based provider invocation used by {@link #provideCached}.
+     */
+    @FunctionalInterface
+    private interface PositionProvider<T> {
+        CompletableFuture<T> compute(Document document, Position position, CancellationToken token);
+    }
+
+    private <T> void provideCached(Object[] args, String kind, Function<T, String> toJSON,
+                                   PositionProvider<T> provider) {
+        int requestId = ((Number) args[0]).intValue();
+        String modelId = (String) args[1];
+        int modelVersionId = ((Number) args[2]).intValue();
+        Position position = new Position(((Number) args[3]).intValue(), ((Number) args[4]).intValue());
+        int wordStartColumn = ((Number) args[5]).intValue();
+        int wordEndColumn = ((Number) args[6]).intValue();
+
+        Document document = getRequestDocument(requestId, modelId, modelVersionId);
+        if (document == null) return;
+        int versionId = document.getVersionId();
+
+        ProviderCache.Key key = new ProviderCache.Key(kind, document, versionId,
+                position.lineNumber, wordStartColumn, wordEndColumn);
+        runRequest(requestId, document, versionId, token -> providerCache.get(key,
+                providerToken -> provider.compute(document, position, providerToken), token), toJSON);
+    }
+
+    /**
+     * Returns the cache of hover and definition results of this editor.
+     * @return the provider cache
+     */
+    public ProviderCache getProviderCache() {
+        return providerCache;
+    }
+
+    /**
+     * @return the current document if the request refers to its current version, {@code null}
+     * otherwise (the request is resolved with {@code null})
+     */
+    private Document getRequestDocument(int requestId, String modelId, int modelVersionId) {
+        Document document = getDocument();
+        if (document == null || !modelId.equals(document.getModelId())
+                || document.getVersionId() != document.toVersionId(modelVersionId)) {
+            resolveRequest(requestId, null, null);
+            return null;
         }
+        return document;
+    }
 
-        registerScript+="\n})";
+    /**
+     * Runs the specified provider and sends its result to monaco. Results of cancelled
+     * requests and results for outdated document versions are discarded.
+     */
+    private <T> void runRequest(int requestId, Document document, int versionId,
+                                Function<CancellationToken, CompletableFuture<T>> provider,
+                                Function<T, String> toJSON) {
+        CancellationToken token = new CancellationToken();
+        pendingRequests.put(requestId, token);
+
+        CompletableFuture<T> future;
+        try {
+            future = provider.apply(token);
+            if (future == null) future = CompletableFuture.completedFuture(null);
+        } catch (RuntimeException ex) {
+            future = CompletableFuture.failedFuture(ex);
+        }
 
-        engine.executeScript(registerScript);
+        CompletableFuture<T> result = future;
+        token.onCancellationRequested(() -> result.cancel(false));
+        result.whenComplete((value, error) -> pulseCoalescer.submit(token, () -> {
+            // cancelled by monaco
+            if (pendingRequests.remove(requestId) == null) return;
+            Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+            if (cause != null && !(cause instanceof CancellationException)) {
+                resolveRequest(requestId, null, String.valueOf(cause));
+            } else if (cause != null) {
+                resolveRequest(requestId, null, null);
+            } else if (document.getVersionId() != versionId) {
+                // stale result, monaco requests a result for the new version
+                resolveRequest(requestId, null, null);
+            } else {
+                resolveRequest(requestId, JsonWriter.raw(toJSON.apply(value)), null);
+            }
+        }));
+    }
+
+    private void resolveRequest(int requestId, JsonWriter.RawJson result, String error) {
+        commands.post(CommandQueue.Kind.CALL, null, "resolveRequest", requestId, result, error);
     }
 
     private void registerThemeJS(EditorTheme t) {
-        String script = "monaco.editor.defineTheme('"+t.name+"', " + t.toJS()+")";
-        engine.executeScript(script);
+        commands.post(CommandQueue.Kind.CALL, null, "defineTheme", t.name, JsonWriter.raw(t.toJSON()));
+    }
+
+    private void setThemeJS(String theme) {
+        commands.post(CommandQueue.Kind.THEME, null, "setTheme", theme);
+    }
+
+    private void setLargeFileModeJS(Document document) {
+        commands.post(CommandQueue.Kind.LARGE_FILE_MODE, this, "setLargeFileMode",
+                document != null && document.isLargeFile());
+    }
+
+    private void setReadOnlyJS() {
+        commands.post(CommandQueue.Kind.READ_ONLY, this, "setReadOnly", isReadOnly());
+    }
+
+    private void setLineNumberOffsetJS() {
+        commands.post(CommandQueue.Kind.LINE_NUMBERS, this, "setLineNumberOffset", getLineNumberOffset());
+    }
+
+    private void setDocumentLanguage(String language) {
+        // the document posts the language of its model (plain text in large-file mode)
+        Document document = getDocument();
+        if (document != null) document.setLanguage(language);
+    }
+
+    /**
+     * Shows the language of the specified document as current language. Documents without
+     * a language get the current language.
+     */
+    private void syncLanguage(Document document) {
+        if (document == null) return;
+        if (document.getLanguage() != null) {
+            setCurrentLanguage(document.getLanguage());
+        } else if (getCurrentLanguage() != null) {
+            document.setLanguage(getCurrentLanguage());
+        }
     }
 
     void setEditor(JSObject window, JSObject editor) {
         this.editor = editor;
         this.window = window;
+        commands.setWindow(window);
+
+        // provider requests cancelled by monaco
+        requestCancelListener = new JFunction(args -> {
+            CancellationToken token = pendingRequests.remove(((Number) args[0]).intValue());
+            if (token != null) token.cancel();
+            return null;
+        });
+        window.setMember("requestCancelListener", requestCancelListener);
 
         // register custom languages
         languages.forEach(this::registerLanguageJS);
@@ -125,31 +396,70 @@ public final class Editor {
             }
         });
 
+        // initial document
+        showDocument(null, getDocument());
+
+        // large-file mode of the current document -> js
+        setLargeFileModeJS(getDocument());
+        ChangeListener<Boolean> largeFileListener = (ov, oldValue, newValue) -> setLargeFileModeJS(getDocument());
+        if (getDocument() != null) getDocument().largeFileProperty().addListener(largeFileListener);
+        documentProperty().addListener((ov, oldDocument, newDocument) -> {
+            if (oldDocument != null) oldDocument.largeFileProperty().removeListener(largeFileListener);
+            if (newDocument != null) newDocument.largeFileProperty().addListener(largeFileListener);
+            setLargeFileModeJS(newDocument);
+        });
+
+        // document changes -> js
+        documentProperty().addListener((ov, oldDocument, newDocument) -> {
+            showDocument(oldDocument, newDocument);
+            syncLanguage(newDocument);
+        });
+
         // initial theme
         if(getCurrentTheme()!=null) {
-            engine.executeScript("monaco.editor.setTheme('"+getCurrentTheme()+"')");
+            setThemeJS(getCurrentTheme());
         }
 
         // theme changes -> js
         currentThemeProperty().addListener((ov) -> {
-            engine.executeScript("monaco.editor.setTheme('"+getCurrentTheme()+"')");
+            String theme = getCurrentTheme() == null ? DEFAULT_THEME : getCurrentTheme();
+            setThemeJS(theme);
         });
 
         // initial lang
-        if(getCurrentLanguage()!=null) {
-            engine.executeScript("monaco.editor.setModelLanguage(editorView.getModel(),'"+getCurrentLanguage()+"')");
-        }
+        syncLanguage(getDocument());
 
         // lang changes -> js
         currentLanguageProperty().addListener((ov) -> {
-            engine.executeScript("monaco.editor.setModelLanguage(editorView.getModel(),'"+getCurrentLanguage()+"')");
+            String language = getCurrentLanguage() == null ? DEFAULT_LANGUAGE : getCurrentLanguage();
+            setDocumentLanguage(language);
         });
 
-        getDocument().setEditor(engine, window, editor);
+        // options -> js
+        if (isReadOnly()) setReadOnlyJS();
+        readOnlyProperty().addListener((ov) -> setReadOnlyJS());
+        if (getLineNumberOffset() != 0) setLineNumberOffsetJS();
+        lineNumberOffsetProperty().addListener((ov) -> setLineNumberOffsetJS());
 
         getViewController().setEditor(window, editor);
     }
 
+    /**
+     * Shows the model of the specified document. The view state (cursor, scroll position,
+     * folding) of the previous document is saved and restored when it is shown again.
+     */
+    private void showDocument(Document oldDocument, Document newDocument) {
+        if (oldDocument != null && oldDocument.getModel() != null) {
+            oldDocument.setViewState(commands.call(editor, "saveViewState"));
+        }
+        if (newDocument == null) {
+            commands.call(window, "setModel", null, null);
+            return;
+        }
+        newDocument.setEditor(window, commands);
+        commands.call(window, "setModel", newDocument.getModel(), newDocument.getViewState());
+    }
+
     public StringProperty currentThemeProperty() {
         return this.currentThemeProperty;
     }
@@ -174,6 +484,40 @@ public final class Editor {
         return currentLanguageProperty().get();
     }
 
+    /**
+     * Whether the content of the editor can be edited by the user. The document can
+     * still be changed programmatically.
+     * @return read-only property
+     */
+    public BooleanProperty readOnlyProperty() {
+        return readOnlyProperty;
+    }
+
+    public void setReadOnly(boolean readOnly) {
+        readOnlyProperty().set(readOnly);
+    }
+
+    public boolean isReadOnly() {
+        return readOnlyProperty().get();
+    }
+
+    /**
+     * Offset added to the line numbers shown by the editor, e.g., if the document contains
+     * a part of a file (see {@link PagedFileViewer}).
+     * @return line number offset property
+     */
+    public IntegerProperty lineNumberOffsetProperty() {
+        return lineNumberOffsetProperty;
+    }
+
+    public void setLineNumberOffset(int offset) {
+        lineNumberOffsetProperty().set(offset);
+    }
+
+    public int getLineNumberOffset() {
+        return lineNumberOffsetProperty().get();
+    }
+
     public ObjectProperty<Document> documentProperty() {
         return documentProperty;
     }
@@ -23,15 +23,15 @@
  */
 package eu.mihosoft.monacofx;
 
-import java.util.Arrays;
-import java.util.stream.Collectors;
-
 public final class EditorTheme {
     public final String name;
     public final String base;
     public final boolean inherit;
     public final Rule[] rules;
 
+    // themes are immutable, the serialized form is computed once
+    private String json;
+
     public EditorTheme(String name, String base, boolean inherit, Rule... rules) {
         this.name = name;
         this.base = base;
@@ -39,17 +39,31 @@ public final class EditorTheme {
         this.rules = rules;
     }
 
-    public String toJS() {
-        String result = "{\n"
-               +"base: '"+base+"',\n"
-               +"inherit: "+inherit+",\n"
-               +"rules: [\n"
-               + String.join(",", Arrays.asList(rules).
-                 stream().map(r->r.toJS()).collect(Collectors.toList()))
-               +"]\n"
-               +"}";
-        return result;
+    /**
+     * @return the theme data ({@code IStandaloneThemeData}) as JSON object
+     */
+    public String toJSON() {
+        if (json == null) {
+            JsonWriter writer = new JsonWriter();
+            writer.beginObject()
+                    .name("base").value(base)
+                    .name("inherit").value(inherit)
+                    .name("rules").beginArray();
+            for (Rule rule : rules) {
+                rule.write(writer);
+            }
+            writer.endArray().endObject();
+            json = writer.toString();
+        }
+        return json;
     }
 
-
+    /**
+     * @return the theme data as JSON object (JSON is valid js)
+     * @deprecated use {@link #toJSON()}
+     */
+    @Deprecated
+    public String toJS() {
+        return toJSON();
+    }
 }
@@ -23,6 +23,8 @@
  */
 package eu.mihosoft.monacofx;
 
+import java.util.List;
+
 public class Folding {
     public final int start;
     public final int end;
@@ -40,6 +42,22 @@ public class Folding {
         this.kind = new FoldingKind(null);
     }
 
+    /**
+     * @param foldings foldings to serialize
+     * @return the specified foldings as JSON array
+     */
+    static String toJSON(List<Folding> foldings) {
+        JsonWriter json = new JsonWriter().beginArray();
+        if (foldings != null) {
+            for (Folding f : foldings) {
+                json.beginObject().name("start").value(f.start).name("end").value(f.end);
+                if (f.kind != null && f.kind.value != null) json.name("kind").value(f.kind.value);
+                json.endObject();
+            }
+        }
+        return json.endArray().toString();
+    }
+
     public static class FoldingKind {
         public final String value;
 
@@ -0,0 +1,66 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+import java.util.List;
+
+/**
+ * Result of a {@link HoverProvider}.
+ */
+public final class Hover {
+    /** contents shown in the hover widget (markdown) */
+    public final List<String> contents;
+    /** start of the range the hover applies to (1-based, {@code null}: word at the position) */
+    public final Position start;
+    /** end of the range the hover applies to (1-based, {@code null}: word at the position) */
+    public final Position end;
+
+    public Hover(List<String> contents, Position start, Position end) {
+        this.contents = List.copyOf(contents);
+        this.start = start;
+        this.end = end;
+    }
+
+    public Hover(List<String> contents) {
+        this(contents, null, null);
+    }
+
+    /**
+     * @param hover hover to serialize (may be {@code null})
+     * @return the specified hover as JSON object
+     */
+    static String toJSON(Hover hover) {
+        if (hover == null) return "null";
+        JsonWriter json = new JsonWriter().beginObject().name("contents").beginArray();
+        hover.contents.forEach(json::value);
+        json.endArray();
+        if (hover.start != null && hover.end != null) {
+            json.name("startLineNumber").value(hover.start.lineNumber)
+                    .name("startColumn").value(hover.start.column)
+                    .name("endLineNumber").value(hover.end.lineNumber)
+                    .name("endColumn").value(hover.end.column);
+        }
+        return json.endObject().toString();
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Computes hovers asynchronously, i.e., without blocking the FX application thread.
+ * Results are cached per document version and word (see {@link ProviderCache}), i.e.,
+ * the provider is not invoked again while the mouse moves over the same word.
+ */
+@FunctionalInterface
+public interface HoverProvider {
+
+    /**
+     * Computes the hover at the specified position. Called on the FX application thread,
+     * expensive computations should run on a background thread.
+     * @param document document
+     * @param text content of the document (immutable)
+     * @param versionId version of the monaco model the content corresponds to
+     * @param position mouse position (1-based line number and column)
+     * @param token signals that the result is no longer needed
+     * @return future hover (completed with {@code null} if there is nothing to show)
+     */
+    CompletableFuture<Hover> computeHover(Document document, TextBuffer text, int versionId,
+                                          Position position, CancellationToken token);
+}
@@ -0,0 +1,201 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Base class of folding providers that derive foldings from a per-line state, e.g., the
+ * indentation of a line. The state of each line only depends on the line itself. For every
+ * document the line states are kept and only the lines affected by changes since the last
+ * request are scanned again. Foldings are computed from the line states on a background
+ * thread.
+ *
+ * @see IndentationFoldingProvider
+ * @see BracketFoldingProvider
+ * @see MarkerFoldingProvider
+ */
+public abstract class IncrementalFoldingProvider implements AsyncFoldingProvider {
+
+    // lines scanned between cancellation checks
+    private static final int CANCELLATION_CHECK_INTERVAL = 1024;
+
+    // accessed from the FX application thread only
+    private final Map<Document, DocumentState> states = new WeakHashMap<>();
+
+    /**
+     * Computes the state of the specified line.
+     * @param line content of the line without line break
+     * @return state of the line
+     */
+    protected abstract int scanLine(CharSequence line);
+
+    /**
+     * Computes the foldings from the specified line states.
+     * @param lineStates state of each line (index 0 is line 1)
+     * @param lineCount number of lines
+     * @param result list the foldings are added to
+     */
+    protected abstract void computeFoldings(int[] lineStates, int lineCount, List<Folding> result);
+
+    @Override
+    public CompletableFuture<List<Folding>> computeFoldings(TextBuffer text, int versionId, CancellationToken token) {
+        DocumentState lineStates = new DocumentState();
+        return CompletableFuture.supplyAsync(() -> lineStates.computeFoldings(text, versionId, token));
+    }
+
+    @Override
+    public CompletableFuture<List<Folding>> computeFoldings(Document document, TextBuffer text,
+                                                            int versionId, CancellationToken token) {
+        DocumentState lineStates = states.get(document);
+        if (lineStates == null) {
+            lineStates = new DocumentState();
+            // changes from now on are recorded, the initial scan covers the current content
+            document.addChangeListener(lineStates);
+            document.addDisposeListener(lineStates.disposeListener);
+            states.put(document, lineStates);
+        }
+        DocumentState s = lineStates;
+        return CompletableFuture.supplyAsync(() -> s.computeFoldings(text, versionId, token));
+    }
+
+    /**
+     * Line states of a document and the changes that have not been applied to them yet.
+     * Changes are recorded on the FX application thread, the line states are updated by
+     * {@link #computeFoldings(TextBuffer, int, CancellationToken)} on background threads
+     * (one at a time). Both only share the pending changes.
+     */
+    private final class DocumentState implements Consumer<DocumentChange> {
+
+        // pending changes are replaced by a full rescan beyond this number
+        private static final int MAX_PENDING_CHANGES = 4096;
+        // ints per pending change: versionId, first line, last line, number of inserted lines
+        private static final int CHANGE_SIZE = 4;
+
+        private final Object lock = new Object();
+        // guarded by lock
+        private int[] pendingChanges = new int[16 * CHANGE_SIZE];
+        private int pendingCount;
+        private boolean rescanPending = true;
+        // versions before this version cannot be updated incrementally
+        private int rescanVersion = Integer.MIN_VALUE;
+
+        private final LineStateArray lines = new LineStateArray();
+        // version the line states correspond to (-1: not scanned yet)
+        private int versionId = -1;
+        // lines that need to be scanned
+        private final DirtyLineRanges dirtyLines = new DirtyLineRanges();
+
+        final Consumer<Document> disposeListener = this::detach;
+
+        @Override
+        public void accept(DocumentChange change) {
+            // only the affected lines are recorded, the changed text is not kept
+            int insertedLines = change.flush ? 0 : LineStateArray.countLineBreaks(change.text) + 1;
+            synchronized (lock) {
+                if (change.flush || pendingCount == MAX_PENDING_CHANGES) {
+                    // requests may have stopped (e.g., the document is hidden), scan again instead
+                    pendingCount = 0;
+                    rescanPending = true;
+                    rescanVersion = change.versionId;
+                    if (pendingChanges.length > 16 * CHANGE_SIZE) pendingChanges = new int[16 * CHANGE_SIZE];
+                    return;
+                }
+                int idx = pendingCount * CHANGE_SIZE;
+                if (idx == pendingChanges.length) pendingChanges = Arrays.copyOf(pendingChanges, idx * 2);
+                pendingChanges[idx] = change.versionId;
+                pendingChanges[idx + 1] = change.start.lineNumber - 1;
+                pendingChanges[idx + 2] = change.end.lineNumber - 1;
+                pendingChanges[idx + 3] = insertedLines;
+                pendingCount++;
+            }
+        }
+
+        private void detach(Document document) {
+            document.removeChangeListener(this);
+            document.removeDisposeListener(disposeListener);
+            states.remove(document);
+        }
+
+        // synchronized with other requests only, changes are recorded while the lines are scanned
+        synchronized List<Folding> computeFoldings(TextBuffer text, int version, CancellationToken token) {
+            if (versionId > version) {
+                // a request for a newer version has been processed already, the result is stale
+                throw new CancellationException();
+            }
+
+            int[] changes;
+            boolean rescan;
+            synchronized (lock) {
+                // remove the pending changes up to the requested version
+                int count = 0;
+                while (count < pendingCount && pendingChanges[count * CHANGE_SIZE] <= version) count++;
+                changes = Arrays.copyOf(pendingChanges, count * CHANGE_SIZE);
+                System.arraycopy(pendingChanges, count * CHANGE_SIZE, pendingChanges, 0,
+                        (pendingCount - count) * CHANGE_SIZE);
+                pendingCount -= count;
+                rescan = rescanPending;
+                if (rescanVersion <= version) rescanPending = false;
+            }
+
+            if (rescan) {
+                lines.reset(text.getLineCount(), 0);
+                dirtyLines.set(0, lines.getLineCount());
+            } else {
+                for (int idx = 0; idx < changes.length; idx += CHANGE_SIZE) {
+                    int first = changes[idx + 1];
+                    int last = changes[idx + 2];
+                    int insertedLines = changes[idx + 3];
+                    // the states of the changed lines are replaced with dirty lines
+                    lines.applyChange(first, last, insertedLines, 0);
+                    dirtyLines.applyChange(first, last, insertedLines);
+                }
+            }
+            versionId = version;
+
+            // scan dirty lines (progress is kept if cancelled)
+            for (int scanned = 0; !dirtyLines.isEmpty(); scanned++) {
+                int line = dirtyLines.getStart(0);
+                if ((scanned % CANCELLATION_CHECK_INTERVAL) == 0 && token.isCancellationRequested()) {
+                    throw new CancellationException();
+                }
+                lines.set(line, scanLine(text.getLine(line + 1)));
+                dirtyLines.removeFirst();
+            }
+
+            if (token.isCancellationRequested()) throw new CancellationException();
+
+            List<Folding> result = new ArrayList<>();
+            IncrementalFoldingProvider.this.computeFoldings(lines.array(), lines.getLineCount(), result);
+            return result;
+        }
+    }
+}
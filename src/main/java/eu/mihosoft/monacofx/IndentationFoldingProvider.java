@@ -0,0 +1,107 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Folds blocks of lines with larger indentation than the line before them (same rules as
+ * monaco's built-in indentation folding). Whitespace-only lines belong to the enclosing block.
+ */
+public final class IndentationFoldingProvider extends IncrementalFoldingProvider {
+
+    private final int tabSize;
+
+    public IndentationFoldingProvider() {
+        this(4);
+    }
+
+    /**
+     * @param tabSize number of columns of a tab
+     */
+    public IndentationFoldingProvider(int tabSize) {
+        this.tabSize = tabSize;
+    }
+
+    /**
+     * @return indentation (columns) or {@code -1} for whitespace-only lines
+     */
+    @Override
+    protected int scanLine(CharSequence line) {
+        int indent = 0;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == ' ') {
+                indent++;
+            } else if (c == '\t') {
+                indent = indent - indent % tabSize + tabSize;
+            } else {
+                return indent;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    protected void computeFoldings(int[] lineStates, int lineCount, List<Folding> result) {
+        // regions of the lines below the current line with increasing indentation
+        int[] indents = new int[16];
+        int[] endAbove = new int[16];
+        int depth = 1;
+        indents[0] = -1;
+        endAbove[0] = lineCount + 1;
+
+        for (int line = lineCount; line > 0; line--) {
+            int indent = lineStates[line - 1];
+            if (indent == -1) continue;
+
+            if (indents[depth - 1] > indent) {
+                // discard regions with larger indentation
+                do {
+                    depth--;
+                } while (indents[depth - 1] > indent);
+                int endLine = endAbove[depth - 1] - 1;
+                if (endLine - line >= 1) {
+                    result.add(new Folding(line, endLine));
+                }
+            }
+
+            if (indents[depth - 1] == indent) {
+                endAbove[depth - 1] = line;
+            } else {
+                if (depth == indents.length) {
+                    indents = Arrays.copyOf(indents, depth * 2);
+                    endAbove = Arrays.copyOf(endAbove, depth * 2);
+                }
+                indents[depth] = indent;
+                endAbove[depth] = line;
+                depth++;
+            }
+        }
+
+        Collections.reverse(result);
+    }
+}
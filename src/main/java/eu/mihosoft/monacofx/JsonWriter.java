@@ -0,0 +1,251 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+import java.util.Arrays;
+
+/**
+ * Streaming JSON writer used for payloads sent to monaco (themes, commands, foldings etc.).
+ * Values are written directly into a buffer that is reused after {@link #reset()}.
+ * Not thread-safe.
+ */
+final class JsonWriter {
+
+    private static final int INITIAL_CAPACITY = 256;
+    // larger buffers are not retained after reset to avoid holding on to memory
+    private static final int MAX_RETAINED_CAPACITY = 1 << 20;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * Pre-serialized JSON that is written as-is (see {@link #raw(String)}).
+     */
+    static final class RawJson {
+        final String json;
+
+        private RawJson(String json) {
+            this.json = json;
+        }
+    }
+
+    private StringBuilder sb = new StringBuilder(INITIAL_CAPACITY);
+    // per nesting level: true if the container already contains an element
+    private boolean[] nonEmpty = new boolean[16];
+    private int depth;
+    private boolean afterName;
+
+    /**
+     * Wraps the specified JSON text, so that it is written as-is by {@link #value(Object)}.
+     * @param json valid JSON text
+     * @return wrapped JSON text
+     */
+    static RawJson raw(String json) {
+        return new RawJson(json);
+    }
+
+    /**
+     * Clears the content of this writer. The buffer is reused.
+     * @return this writer
+     */
+    JsonWriter reset() {
+        if (sb.capacity() > MAX_RETAINED_CAPACITY) {
+            sb = new StringBuilder(INITIAL_CAPACITY);
+        } else {
+            sb.setLength(0);
+        }
+        depth = 0;
+        afterName = false;
+        return this;
+    }
+
+    JsonWriter beginObject() {
+        beforeValue();
+        sb.append('{');
+        push();
+        return this;
+    }
+
+    JsonWriter endObject() {
+        depth--;
+        sb.append('}');
+        return this;
+    }
+
+    JsonWriter beginArray() {
+        beforeValue();
+        sb.append('[');
+        push();
+        return this;
+    }
+
+    JsonWriter endArray() {
+        depth--;
+        sb.append(']');
+        return this;
+    }
+
+    /**
+     * Writes the name of the next object member.
+     * @param name member name
+     * @return this writer
+     */
+    JsonWriter name(String name) {
+        beforeValue();
+        string(name);
+        sb.append(':');
+        afterName = true;
+        return this;
+    }
+
+    JsonWriter value(String value) {
+        beforeValue();
+        if (value == null) {
+            sb.append("null");
+        } else {
+            string(value);
+        }
+        return this;
+    }
+
+    JsonWriter value(long value) {
+        beforeValue();
+        sb.append(value);
+        return this;
+    }
+
+    JsonWriter value(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException("JSON does not support " + value);
+        }
+        beforeValue();
+        if (value == (long) value) {
+            sb.append((long) value);
+        } else {
+            sb.append(value);
+        }
+        return this;
+    }
+
+    JsonWriter value(boolean value) {
+        beforeValue();
+        sb.append(value);
+        return this;
+    }
+
+    /**
+     * Writes the specified value. Supported are {@code null}, strings, numbers, booleans,
+     * int arrays and {@link RawJson}.
+     * @param value value to write
+     * @return this writer
+     */
+    JsonWriter value(Object value) {
+        if (value == null || value instanceof String) {
+            return value((String) value);
+        } else if (value instanceof Integer || value instanceof Long
+                || value instanceof Short || value instanceof Byte) {
+            return value(((Number) value).longValue());
+        } else if (value instanceof Number) {
+            return value(((Number) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            return value(((Boolean) value).booleanValue());
+        } else if (value instanceof int[]) {
+            return value((int[]) value);
+        } else if (value instanceof RawJson) {
+            beforeValue();
+            sb.append(((RawJson) value).json);
+            return this;
+        }
+        throw new IllegalArgumentException("unsupported value type: " + value.getClass().getName());
+    }
+
+    JsonWriter value(int[] values) {
+        beginArray();
+        for (int v : values) {
+            value(v);
+        }
+        return endArray();
+    }
+
+    private void push() {
+        if (depth == nonEmpty.length) {
+            nonEmpty = Arrays.copyOf(nonEmpty, depth * 2);
+        }
+        nonEmpty[depth++] = false;
+    }
+
+    private void beforeValue() {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (depth > 0) {
+            if (nonEmpty[depth - 1]) sb.append(',');
+            nonEmpty[depth - 1] = true;
+        }
+    }
+
+    private void string(String value) {
+        sb.append('"');
+        int start = 0;
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            String replacement;
+            if (c == '"') {
+                replacement = "\\\"";
+            } else if (c == '\\') {
+                replacement = "\\\\";
+            } else if (c == '\n') {
+                replacement = "\\n";
+            } else if (c == '\r') {
+                replacement = "\\r";
+            } else if (c == '\t') {
+                replacement = "\\t";
+            } else if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+                replacement = null;
+            } else {
+                continue;
+            }
+            // copy unescaped run at once
+            sb.append(value, start, i);
+            if (replacement != null) {
+                sb.append(replacement);
+            } else {
+                sb.append("\\u").append(HEX[(c >> 12) & 0xf]).append(HEX[(c >> 8) & 0xf])
+                        .append(HEX[(c >> 4) & 0xf]).append(HEX[c & 0xf]);
+            }
+            start = i + 1;
+        }
+        sb.append(value, start, length);
+        sb.append('"');
+    }
+
+    /**
+     * @return the JSON text written so far
+     */
+    @Override
+    public String toString() {
+        return sb.toString();
+    }
+}
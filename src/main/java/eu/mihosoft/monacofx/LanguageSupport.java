@@ -29,6 +29,40 @@ public interface LanguageSupport {
 
     default FoldingProvider getFoldingProvider(){return null;};
 
+    /**
+     * Asynchronous folding provider (preferred over {@link #getFoldingProvider()} if present).
+     * @return async folding provider or {@code null}
+     */
+    default AsyncFoldingProvider getAsyncFoldingProvider(){return null;};
+
     default MonarchSyntaxHighlighter getMonarchSyntaxHighlighter(){return null;};
 
+    /**
+     * Java tokens provider (preferred over {@link #getMonarchSyntaxHighlighter()} if present).
+     * @return tokens provider or {@code null}
+     */
+    default TokensProvider<?> getTokensProvider(){return null;};
+
+    /**
+     * Completion provider (see {@link CompletionProvider#words(int)} for a word-based provider).
+     * @return completion provider or {@code null}
+     */
+    default CompletionProvider getCompletionProvider(){return null;};
+
+    /**
+     * @return hover provider or {@code null}
+     */
+    default HoverProvider getHoverProvider(){return null;};
+
+    /**
+     * @return definition provider or {@code null}
+     */
+    default DefinitionProvider getDefinitionProvider(){return null;};
+
+    /**
+     * Symbol extractor, used for the outline of the editor and by {@link SymbolIndex}.
+     * @return symbol extractor or {@code null}
+     */
+    default SymbolExtractor getSymbolExtractor(){return null;};
+
 }
@@ -0,0 +1,157 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+import java.util.Arrays;
+
+/**
+ * Index of line start offsets stored in a primitive array that is patched incrementally
+ * on each edit.
+ *
+ * <p>Shifting all line starts behind an edit would make every keystroke {@code O(lines)}.
+ * Instead, the shift is recorded lazily: all entries at or behind {@code deltaIndex} have to
+ * be corrected by {@code delta}. Subsequent edits only move this boundary, which costs time
+ * proportional to the distance between two edit locations. Lookups are binary searches and
+ * run in {@code O(log n)}.</p>
+ *
+ * <p>Line indices are 0-based. A line starts after each {@code \n}.</p>
+ */
+final class LineIndex {
+
+    private int[] starts = new int[]{0};
+    private int lineCount = 1;
+
+    // entries at indices >= deltaIndex are stored without delta
+    private int deltaIndex = 1;
+    private int delta;
+
+    /**
+     * Rebuilds the index for the specified text.
+     * @param text text to index
+     */
+    void reset(CharSequence text) {
+        int[] newStarts = new int[Math.max(16, text.length() / 32)];
+        int count = 1;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                if (count == newStarts.length) newStarts = Arrays.copyOf(newStarts, count * 2);
+                newStarts[count++] = i + 1;
+            }
+        }
+        starts = newStarts;
+        lineCount = count;
+        deltaIndex = count;
+        delta = 0;
+    }
+
+    /**
+     * Updates the index for the replacement of the specified range.
+     * @param offset start of the replaced range
+     * @param length length of the replaced range
+     * @param text replacement text
+     */
+    void replace(int offset, int length, CharSequence text) {
+        int first = getLineIndex(offset) + 1;                 // first line start that may change
+        int removed = getLineIndex(offset + length) + 1 - first;
+
+        int inserted = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') inserted++;
+        }
+
+        moveDeltaIndex(first);
+
+        // splice inserted line starts (stored exactly) in place of the removed ones
+        int tail = lineCount - first - removed;
+        int newLineCount = lineCount - removed + inserted;
+        if (newLineCount > starts.length) {
+            starts = Arrays.copyOf(starts, Math.max(newLineCount, starts.length + (starts.length >> 1)));
+        }
+        if (removed != inserted) {
+            System.arraycopy(starts, first + removed, starts, first + inserted, tail);
+        }
+
+        int idx = first;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') starts[idx++] = offset + i + 1;
+        }
+
+        lineCount = newLineCount;
+        deltaIndex = first + inserted;
+        delta += text.length() - length;
+    }
+
+    private void moveDeltaIndex(int index) {
+        if (delta == 0) {
+            deltaIndex = index;
+            return;
+        }
+        for (int i = deltaIndex; i < index; i++) {
+            starts[i] += delta;
+        }
+        for (int i = index; i < deltaIndex; i++) {
+            starts[i] -= delta;
+        }
+        deltaIndex = index;
+    }
+
+    /**
+     * @return number of lines
+     */
+    int getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * Returns the start offset of the specified line.
+     * @param lineIndex line index (0-based)
+     * @return start offset
+     */
+    int getLineStart(int lineIndex) {
+        if (lineIndex < 0 || lineIndex >= lineCount) {
+            throw new IndexOutOfBoundsException(
+                    "Line index " + lineIndex + " out of range [0," + lineCount + ")");
+        }
+        return lineIndex >= deltaIndex ? starts[lineIndex] + delta : starts[lineIndex];
+    }
+
+    /**
+     * Returns the index of the line that contains the specified offset.
+     * @param offset offset
+     * @return line index (0-based)
+     */
+    int getLineIndex(int offset) {
+        int low = 0;
+        int high = lineCount - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (getLineStart(mid) <= offset) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+}
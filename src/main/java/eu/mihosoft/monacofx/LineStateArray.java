@@ -0,0 +1,106 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+import java.util.Arrays;
+
+/**
+ * Growable array of one int per line that can be kept in sync with document changes
+ * (used for per-line states of incremental algorithms). Indices are 0-based. Not thread-safe.
+ */
+final class LineStateArray {
+
+    private int[] values = new int[16];
+    private int lineCount;
+
+    /**
+     * Resizes the array to the specified number of lines and sets all values.
+     * @param lineCount number of lines
+     * @param value value of all lines
+     */
+    void reset(int lineCount, int value) {
+        if (values.length < lineCount) values = new int[lineCount];
+        Arrays.fill(values, 0, lineCount, value);
+        this.lineCount = lineCount;
+    }
+
+    int getLineCount() {
+        return lineCount;
+    }
+
+    int get(int line) {
+        return values[line];
+    }
+
+    void set(int line, int value) {
+        values[line] = value;
+    }
+
+    /**
+     * @return the backing array (valid up to {@link #getLineCount()})
+     */
+    int[] array() {
+        return values;
+    }
+
+    /**
+     * Replaces the lines covered by the specified change with the lines of the inserted text.
+     * The inserted lines start at index {@code change.start.lineNumber - 1}.
+     * @param change change (not a flush)
+     * @param value value of the inserted lines
+     * @return number of inserted lines
+     */
+    int applyChange(DocumentChange change, int value) {
+        int insertedLines = countLineBreaks(change.text) + 1;
+        applyChange(change.start.lineNumber - 1, change.end.lineNumber - 1, insertedLines, value);
+        return insertedLines;
+    }
+
+    /**
+     * Replaces the lines {@code [first, last]} with the specified number of lines.
+     * @param first first replaced line
+     * @param last last replaced line
+     * @param insertedLines number of inserted lines
+     * @param value value of the inserted lines
+     */
+    void applyChange(int first, int last, int insertedLines, int value) {
+        int delta = insertedLines - (last - first + 1);
+
+        int newLineCount = lineCount + delta;
+        if (newLineCount > values.length) {
+            values = Arrays.copyOf(values, Math.max(newLineCount, values.length + (values.length >> 1)));
+        }
+        System.arraycopy(values, last + 1, values, last + 1 + delta, lineCount - last - 1);
+        Arrays.fill(values, first, first + insertedLines, value);
+        lineCount = newLineCount;
+    }
+
+    static int countLineBreaks(String text) {
+        int count = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+import java.util.List;
+
+/**
+ * Range of a document, e.g., the result of a {@link DefinitionProvider}.
+ */
+public final class Location {
+    /** document of the range ({@code null}: the requesting document) */
+    public final Document document;
+    /** start of the range (1-based line number and column) */
+    public final Position start;
+    /** end of the range (1-based line number and column) */
+    public final Position end;
+
+    public Location(Document document, Position start, Position end) {
+        this.document = document;
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Creates a location in the requesting document.
+     * @param start start of the range
+     * @param end end of the range
+     */
+    public Location(Position start, Position end) {
+        this(null, start, end);
+    }
+
+    /**
+     * Serializes the specified locations. Locations in documents without monaco model
+     * are skipped.
+     * @param locations locations to serialize
+     * @return the specified locations as JSON array
+     */
+    static String toJSON(List<Location> locations) {
+        JsonWriter json = new JsonWriter().beginArray();
+        if (locations != null) {
+            for (Location location : locations) {
+                String modelId = location.document == null ? null : location.document.getModelId();
+                if (location.document != null && modelId == null) continue;
+                json.beginObject()
+                        .name("modelId").value(modelId)
+                        .name("startLineNumber").value(location.start.lineNumber)
+                        .name("startColumn").value(location.start.column)
+                        .name("endLineNumber").value(location.end.lineNumber)
+                        .name("endColumn").value(location.end.column)
+                        .endObject();
+            }
+        }
+        return json.endArray().toString();
+    }
+
+    @Override
+    public String toString() {
+        return "Location[start=" + start + ", end=" + end + "]";
+    }
+}
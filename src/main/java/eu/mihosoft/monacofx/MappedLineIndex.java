@@ -0,0 +1,288 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Sparse index of the line starts of a file that may be larger than the heap.
+ *
+ * <p>The file is split into chunks that are memory-mapped and indexed in parallel. Each chunk
+ * stores the offsets of every {@value #SAMPLE_INTERVAL}th line starting in it, relative to
+ * the chunk start, and the number of lines starting in it. Line starts between two samples
+ * are found by scanning the file. Chunks are published in file order, i.e., lines can be read
+ * before indexing is complete (see {@link #getLineCount()}).</p>
+ *
+ * <p>Line indices are 0-based. A line starts at the beginning of the file and after each
+ * {@code \n} (a line break at the end of the file does not start another line).</p>
+ */
+final class MappedLineIndex implements Closeable {
+
+    static final int SAMPLE_INTERVAL = 64;
+    static final long DEFAULT_CHUNK_SIZE = 64L * 1024 * 1024;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private static final class Chunk {
+        final long start;
+        final long end;
+        // offsets (relative to start) of every SAMPLE_INTERVAL-th line starting in the chunk
+        int[] samples = new int[16];
+        int lineCount;
+        // global index of the first line starting in the chunk, valid after publication
+        int firstLine;
+        boolean indexed;
+
+        Chunk(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    private final FileChannel channel;
+    private final long size;
+    private final Chunk[] chunks;
+    private final Runnable progressListener;
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+    // number of published chunks (all chunks before have been indexed)
+    private volatile int publishedChunks;
+
+    /**
+     * Opens the specified file and starts indexing it.
+     * @param path file to index
+     * @param progressListener notified (on a worker thread) whenever more lines are available
+     * @throws IOException if the file cannot be opened
+     */
+    MappedLineIndex(Path path, Runnable progressListener) throws IOException {
+        this(path, DEFAULT_CHUNK_SIZE, progressListener);
+    }
+
+    MappedLineIndex(Path path, long chunkSize, Runnable progressListener) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.progressListener = progressListener;
+        this.chunks = new Chunk[(int) Math.max(1, (size + chunkSize - 1) / chunkSize)];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = new Chunk(i * chunkSize, Math.min(size, (i + 1) * chunkSize));
+        }
+        // chunks are indexed in parallel (fork/join common pool)
+        CompletableFuture<?>[] tasks = new CompletableFuture<?>[chunks.length];
+        for (int i = 0; i < chunks.length; i++) {
+            Chunk chunk = chunks[i];
+            tasks[i] = CompletableFuture.runAsync(() -> {
+                try {
+                    index(chunk);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+                publish(chunk);
+            });
+        }
+        CompletableFuture.allOf(tasks).whenComplete((v, error) -> {
+            if (error != null) {
+                completion.completeExceptionally(error);
+            } else {
+                completion.complete(null);
+            }
+        });
+    }
+
+    private void index(Chunk chunk) throws IOException {
+        if (chunk.start == chunk.end) return;
+        // includes the last byte of the previous chunk to detect a line start at the chunk start
+        long mapStart = Math.max(0, chunk.start - 1);
+        MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, mapStart, chunk.end - mapStart);
+        int first = (int) (chunk.start - mapStart);
+        boolean lineStart = chunk.start == 0 || bytes.get(0) == '\n';
+        int limit = bytes.limit();
+        for (int i = first; i < limit; i++) {
+            if (lineStart) {
+                if (chunk.lineCount % SAMPLE_INTERVAL == 0) {
+                    int sample = chunk.lineCount / SAMPLE_INTERVAL;
+                    if (sample == chunk.samples.length) {
+                        chunk.samples = Arrays.copyOf(chunk.samples, sample * 2);
+                    }
+                    chunk.samples[sample] = i - first;
+                }
+                chunk.lineCount++;
+            }
+            lineStart = bytes.get(i) == '\n';
+        }
+    }
+
+    /**
+     * Marks the specified chunk as indexed and publishes all chunks whose predecessors
+     * have been indexed.
+     */
+    private void publish(Chunk chunk) {
+        synchronized (chunks) {
+            chunk.indexed = true;
+            int published = publishedChunks;
+            if (published == chunks.length || !chunks[published].indexed) return;
+            int lines = lineCount(published);
+            while (published < chunks.length && chunks[published].indexed) {
+                chunks[published].firstLine = lines;
+                lines = Math.addExact(lines, chunks[published].lineCount);
+                published++;
+            }
+            // volatile write, publishes the chunk fields
+            publishedChunks = published;
+        }
+        if (progressListener != null) progressListener.run();
+    }
+
+    /**
+     * @return number of lines starting in the specified number of published chunks
+     */
+    private int lineCount(int published) {
+        if (published == 0) return 0;
+        Chunk last = chunks[published - 1];
+        return last.firstLine + last.lineCount;
+    }
+
+    /**
+     * @return future that is completed after the whole file has been indexed
+     */
+    CompletableFuture<Void> whenComplete() {
+        return completion;
+    }
+
+    boolean isComplete() {
+        return publishedChunks == chunks.length;
+    }
+
+    /**
+     * Returns the number of lines that can be read. While indexing is in progress the last
+     * published line is excluded because its end is not known yet.
+     * @return number of lines that can be read
+     */
+    int getLineCount() {
+        int published = publishedChunks;
+        int lines = lineCount(published);
+        return published == chunks.length ? lines : Math.max(0, lines - 1);
+    }
+
+    /**
+     * @return size of the file in bytes
+     */
+    long getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the offset of the specified line start.
+     * @param line line index, at most {@link #getLineCount()} (returns the end of the last line)
+     * @return offset in bytes
+     * @throws IOException if the file cannot be read
+     */
+    long getLineStart(int line) throws IOException {
+        if (line < 0) throw new IndexOutOfBoundsException("line: " + line);
+        int published = publishedChunks;
+        int lines = lineCount(published);
+        if (line >= lines) {
+            if (published == chunks.length && line == lines) return size;
+            throw new IndexOutOfBoundsException("line: " + line + ", indexed lines: " + lines);
+        }
+        // last published chunk containing line starts <= line
+        int lo = 0;
+        int hi = published - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (chunks[mid].firstLine <= line) lo = mid; else hi = mid - 1;
+        }
+        while (chunks[lo].lineCount == 0 || chunks[lo].firstLine + chunks[lo].lineCount <= line) lo--;
+        Chunk chunk = chunks[lo];
+        int local = line - chunk.firstLine;
+        long offset = chunk.start + chunk.samples[local / SAMPLE_INTERVAL];
+        return skipLines(offset, local % SAMPLE_INTERVAL);
+    }
+
+    private long skipLines(long offset, int count) throws IOException {
+        if (count == 0) return offset;
+        ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        long position = offset;
+        while (true) {
+            buffer.clear();
+            int n = channel.read(buffer, position);
+            if (n < 0) throw new IOException("unexpected end of file at " + position);
+            for (int i = 0; i < n; i++) {
+                if (buffer.get(i) == '\n' && --count == 0) return position + i + 1;
+            }
+            position += n;
+        }
+    }
+
+    /**
+     * @param charset charset
+     * @return whether lines of files in the specified charset can be indexed, i.e., {@code \n}
+     * is encoded as the single byte {@code 0x0A} (e.g., UTF-8, not UTF-16)
+     */
+    static boolean isSupported(Charset charset) {
+        return Arrays.equals("\n".getBytes(charset), new byte[]{'\n'});
+    }
+
+    /**
+     * Reads the specified lines. Line breaks between the lines are kept, the line break
+     * of the last line is removed.
+     * @param first index of the first line
+     * @param count number of lines
+     * @param charset charset of the file (see {@link #isSupported(Charset)})
+     * @return content of the lines
+     * @throws IOException if the file cannot be read
+     */
+    String readLines(int first, int count, Charset charset) throws IOException {
+        if (count == 0) return "";
+        long start = getLineStart(first);
+        long end = getLineStart(first + count);
+        if (end - start > Integer.MAX_VALUE - 8) {
+            throw new IOException("lines " + first + " to " + (first + count) + " are too large");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) (end - start));
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, start + buffer.position()) < 0) break;
+        }
+        buffer.flip();
+        // trailing line break
+        int limit = buffer.limit();
+        if (limit > 0 && buffer.get(limit - 1) == '\n') limit--;
+        if (limit > 0 && buffer.get(limit - 1) == '\r') limit--;
+        buffer.limit(limit);
+        return charset.decode(buffer).toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
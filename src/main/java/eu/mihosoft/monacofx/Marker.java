@@ -0,0 +1,79 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+/**
+ * A diagnostic (error, warning etc.) of a document range, shown as monaco marker.
+ */
+public final class Marker {
+
+    public enum Severity {
+        HINT(1), INFO(2), WARNING(4), ERROR(8);
+
+        // value of monaco's MarkerSeverity
+        final int value;
+
+        Severity(int value) {
+            this.value = value;
+        }
+    }
+
+    public final Severity severity;
+    public final String message;
+    /** start of the range (1-based line number and column) */
+    public final Position start;
+    /** end of the range (1-based line number and column) */
+    public final Position end;
+    /** origin of the marker, e.g., the name of the linter (may be {@code null}) */
+    public final String source;
+
+    public Marker(Severity severity, String message, Position start, Position end, String source) {
+        this.severity = severity;
+        this.message = message;
+        this.start = start;
+        this.end = end;
+        this.source = source;
+    }
+
+    public Marker(Severity severity, String message, Position start, Position end) {
+        this(severity, message, start, end, null);
+    }
+
+    void write(JsonWriter json) {
+        json.beginObject()
+                .name("severity").value(severity.value)
+                .name("message").value(message)
+                .name("startLineNumber").value(start.lineNumber)
+                .name("startColumn").value(start.column)
+                .name("endLineNumber").value(end.lineNumber)
+                .name("endColumn").value(end.column);
+        if (source != null) json.name("source").value(source);
+        json.endObject();
+    }
+
+    @Override
+    public String toString() {
+        return severity + " " + start + "-" + end + ": " + message;
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Folds regions between marker comments, e.g., {@code // #region} and {@code // #endregion}.
+ */
+public final class MarkerFoldingProvider extends IncrementalFoldingProvider {
+
+    private static final int NONE = 0;
+    private static final int START = 1;
+    private static final int END = 2;
+
+    private final Pattern start;
+    private final Pattern end;
+
+    /**
+     * Creates a provider for {@code #region} and {@code #endregion} markers at the start of a
+     * line (e.g., C#), optionally after a line or block comment start ({@code //}, {@code #},
+     * <code>/*</code>, {@code <!--}).
+     */
+    public MarkerFoldingProvider() {
+        this(Pattern.compile("^\\s*(?:(?://|#|/\\*|<!--)\\s*)?#region\\b"),
+                Pattern.compile("^\\s*(?:(?://|#|/\\*|<!--)\\s*)?#endregion\\b"));
+    }
+
+    /**
+     * @param start pattern of lines that start a region (matched with {@code find()})
+     * @param end pattern of lines that end a region (matched with {@code find()})
+     */
+    public MarkerFoldingProvider(Pattern start, Pattern end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    @Override
+    protected int scanLine(CharSequence line) {
+        if (start.matcher(line).find()) return START;
+        if (end.matcher(line).find()) return END;
+        return NONE;
+    }
+
+    @Override
+    protected void computeFoldings(int[] lineStates, int lineCount, List<Folding> result) {
+        int[] stack = new int[16];
+        int depth = 0;
+
+        for (int line = 1; line <= lineCount; line++) {
+            int state = lineStates[line - 1];
+            if (state == START) {
+                if (depth == stack.length) stack = Arrays.copyOf(stack, depth * 2);
+                stack[depth++] = line;
+            } else if (state == END && depth > 0) {
+                int startLine = stack[--depth];
+                if (line > startLine) {
+                    result.add(new Folding(startLine, line, "region"));
+                }
+            }
+        }
+
+        result.sort(Comparator.comparingInt(f -> f.start));
+    }
+}
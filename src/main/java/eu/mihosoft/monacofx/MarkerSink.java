@@ -0,0 +1,198 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Receives markers of a {@link Document}, e.g., from a linter running on a background thread.
+ * Markers are submitted per owner together with the document version they were computed for.
+ * Batches for outdated versions are dropped. Batches that are submitted before the previous
+ * batch of the same owner has been applied replace it (coalesced). Pending batches are sent
+ * to monaco at most once per pulse with one bridge call. Thread-safe.
+ */
+public final class MarkerSink {
+
+    private static final class Batch {
+        final int versionId;
+        final List<Marker> markers;
+
+        Batch(int versionId, List<Marker> markers) {
+            this.versionId = versionId;
+            this.markers = markers;
+        }
+    }
+
+    private final Document document;
+    // pending batches by owner, guarded by itself
+    private final Map<String, Batch> pending = new LinkedHashMap<>();
+
+    // set on the FX application thread
+    private volatile CommandQueue commands;
+    private volatile String modelId;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder applied = new LongAdder();
+
+    MarkerSink(Document document) {
+        this.document = document;
+    }
+
+    /**
+     * Replaces the markers of the specified owner. May be called from any thread.
+     * @param owner owner of the markers, e.g., the name of the linter
+     * @param versionId document version the markers were computed for
+     * @param markers markers (positions refer to the specified version)
+     */
+    public void submit(String owner, int versionId, List<Marker> markers) {
+        submitted.increment();
+        if (versionId < document.getVersionId()) {
+            dropped.increment();
+            return;
+        }
+        synchronized (pending) {
+            if (pending.put(owner, new Batch(versionId, List.copyOf(markers))) != null) {
+                coalesced.increment();
+            }
+        }
+        schedule();
+    }
+
+    /**
+     * Replaces the markers of the specified owner with markers computed for the specified
+     * snapshot (see {@link Document#snapshot()}). May be called from any thread.
+     * @param owner owner of the markers, e.g., the name of the linter
+     * @param snapshot snapshot the markers were computed for
+     * @param markers markers (positions refer to the snapshot)
+     */
+    public void submit(String owner, DocumentSnapshot snapshot, List<Marker> markers) {
+        submit(owner, snapshot.getVersionId(), markers);
+    }
+
+    /**
+     * Removes the markers of the specified owner. May be called from any thread.
+     * @param owner owner of the markers
+     */
+    public void clear(String owner) {
+        submit(owner, document.getVersionId(), List.of());
+    }
+
+    /**
+     * @return number of submitted batches
+     */
+    public long getSubmittedCount() {
+        return submitted.sum();
+    }
+
+    /**
+     * @return number of batches that have been replaced by a newer batch before they were applied
+     */
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    /**
+     * @return number of batches that have been dropped because the document changed since the
+     * version they were computed for
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return number of batches that have been sent to monaco
+     */
+    public long getAppliedCount() {
+        return applied.sum();
+    }
+
+    private void schedule() {
+        CommandQueue queue = commands;
+        if (queue != null) queue.runOnPulse(this, this::flush);
+    }
+
+    /**
+     * Called when the document got a monaco model. Pending markers are sent on the next pulse.
+     */
+    void attach(CommandQueue commands, String modelId) {
+        this.modelId = modelId;
+        this.commands = commands;
+        schedule();
+    }
+
+    /**
+     * Called when the monaco model of the document has been disposed.
+     */
+    void detach() {
+        this.commands = null;
+        this.modelId = null;
+    }
+
+    /**
+     * Sends the pending batches to monaco (FX application thread).
+     */
+    private void flush() {
+        CommandQueue queue = commands;
+        if (queue == null) return;
+
+        List<Map.Entry<String, Batch>> batches;
+        synchronized (pending) {
+            if (pending.isEmpty()) return;
+            batches = new ArrayList<>(pending.entrySet());
+            pending.clear();
+        }
+
+        int versionId = document.getVersionId();
+        JsonWriter json = new JsonWriter();
+        for (Map.Entry<String, Batch> entry : batches) {
+            Batch batch = entry.getValue();
+            if (batch.versionId < versionId) {
+                dropped.increment();
+                continue;
+            }
+            json.reset().beginArray();
+            for (Marker marker : batch.markers) {
+                marker.write(json);
+            }
+            json.endArray();
+            queue.post(CommandQueue.Kind.CALL, this, "setMarkers",
+                    modelId, entry.getKey(), JsonWriter.raw(json.toString()));
+            applied.increment();
+        }
+        // all owners with one bridge call
+        queue.flush();
+    }
+
+    @Override
+    public String toString() {
+        return "MarkerSink[submitted=" + getSubmittedCount() + ", coalesced=" + getCoalescedCount()
+                + ", dropped=" + getDroppedCount() + ", applied=" + getAppliedCount() + "]";
+    }
+}
@@ -23,10 +23,9 @@
  */
 package eu.mihosoft.monacofx;
 
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
 
-import javafx.application.Platform;
 import javafx.concurrent.Worker;
 import javafx.geometry.HPos;
 import javafx.geometry.VPos;
@@ -45,6 +44,13 @@ public class MonacoFX extends Region {
 
     private final Editor editor;
     private final SystemClipboardWrapper systemClipboardWrapper;
+    private JSObject window;
+
+    private final CompletableFuture<Editor> ready = new CompletableFuture<>();
+    private final long loadStartTime;
+    private long pageLoadedTime;
+    private StartupTimes startupTimes;
+    private JFunction editorCreatedCallback;
 
     public MonacoFX() {
         view = new WebView();
@@ -52,55 +58,101 @@ public class MonacoFX extends Region {
         engine = view.getEngine();
         String url = getClass().getResource(EDITOR_HTML_RESOURCE_LOCATION).toExternalForm();
 
+        loadStartTime = System.nanoTime();
         engine.load(url);
 
         editor = new Editor(engine);
 
         systemClipboardWrapper = new SystemClipboardWrapper();
-        ClipboardBridge clipboardBridge = new ClipboardBridge(getEditor().getDocument(), systemClipboardWrapper);
+        // the clipboard bridge operates on the current document
+        editor.documentProperty().addListener((ov) -> updateClipboardBridge());
         engine.getLoadWorker().stateProperty().addListener((o, old, state) -> {
             if (state == Worker.State.SUCCEEDED) {
+                pageLoadedTime = System.nanoTime();
 
-                JSObject window = (JSObject) engine.executeScript("window");
-                window.setMember("clipboardBridge", clipboardBridge);
-
-                AtomicBoolean jsDone = new AtomicBoolean(false);
-                AtomicInteger attempts = new AtomicInteger();
-
-                Thread thread = new Thread(() -> {
-                    while (!jsDone.get()) {
-                        try {
-                            Thread.sleep(500);
-                        } catch (InterruptedException e) {
-                            e.printStackTrace();
-                        }
-                        // check if JS execution is done.
-                        Platform.runLater(() -> {
-                            Object jsEditorObj = window.call("getEditorView");
-                            if (jsEditorObj instanceof JSObject) {
-                                editor.setEditor(window, (JSObject) jsEditorObj);
-                                jsDone.set(true);
-                            }
-                        });
-
-                        if(attempts.getAndIncrement()> 10) {
-                            throw new RuntimeException(
-                                "Cannot initialize editor (JS execution not complete). Max number of attempts reached."
-                            );
-                        }
-                    }
-                });
-                thread.start();
+                window = (JSObject) engine.executeScript("window");
+                updateClipboardBridge();
 
+                // keep a global reference because it's garbage collected otherwise
+                editorCreatedCallback = new JFunction(args -> {
+                    initEditor(window, (JSObject) args[0], false);
+                    return null;
+                });
+                window.setMember("editorCreatedCallback", editorCreatedCallback);
+
+                // the editor might have been created before the page load completed
+                Object jsEditorObj = window.call("getEditorView");
+                if (jsEditorObj instanceof JSObject) {
+                    initEditor(window, (JSObject) jsEditorObj, true);
+                }
+            } else if (state == Worker.State.FAILED) {
+                ready.completeExceptionally(new IllegalStateException(
+                        "Cannot initialize editor (loading the editor page failed).",
+                        engine.getLoadWorker().getException()));
             }
         });
 
         addEventFilter(KeyEvent.KEY_PRESSED, event -> {
-            Object obj = engine.executeScript("editorView.getModel().getValueInRange(editorView.getSelection())");
-            systemClipboardWrapper.handleCopyCutKeyEvent(event, obj);
+            if (systemClipboardWrapper.isCopyOrCutEvent(event)) {
+                Selection selection = editor.getViewController().getCursorSelection().primarySelection;
+                String selectedText = editor.getDocument().getText(selection.start, selection.stop);
+                systemClipboardWrapper.handleCopyCutKeyEvent(event, selectedText);
+            }
         });
     }
 
+    private void updateClipboardBridge() {
+        if (window != null) {
+            window.setMember("clipboardBridge",
+                    new ClipboardBridge(editor.getDocument(), systemClipboardWrapper));
+        }
+    }
+
+    /**
+     * Releases the web view content. The instance must not be used afterwards.
+     */
+    void dispose() {
+        window = null;
+        engine.load(null);
+    }
+
+    /**
+     * @param createdDuringPageLoad whether the editor was created before the page load
+     *                              completed (the time of the editor creation is unknown)
+     */
+    private void initEditor(JSObject window, JSObject jsEditor, boolean createdDuringPageLoad) {
+        if (ready.isDone()) return;
+        long editorCreatedTime = System.nanoTime();
+        try {
+            editor.setEditor(window, jsEditor);
+        } catch (RuntimeException ex) {
+            ready.completeExceptionally(ex);
+            throw ex;
+        }
+        startupTimes = new StartupTimes(
+                Duration.ofNanos(pageLoadedTime - loadStartTime),
+                createdDuringPageLoad ? null : Duration.ofNanos(editorCreatedTime - pageLoadedTime));
+        ready.complete(editor);
+    }
+
+    /**
+     * Returns a future that is completed on the FX application thread as soon as the
+     * editor has been created and initialized. It completes exceptionally if the editor
+     * page cannot be loaded.
+     * @return future that is completed with the editor
+     */
+    public CompletableFuture<Editor> whenReady() {
+        return ready;
+    }
+
+    /**
+     * Returns the startup times of this instance, split into page load and editor creation.
+     * @return startup times or {@code null} if the editor is not ready yet
+     */
+    public StartupTimes getStartupTimes() {
+        return startupTimes;
+    }
+
     @Override protected double computePrefWidth(double height) {
         return view.prefWidth(height);
     }
@@ -0,0 +1,210 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * Pool of pre-warmed {@link MonacoFX} instances. Creating a {@link MonacoFX} node loads the
+ * whole monaco bundle into a new web view, which is too expensive for UIs that open and
+ * close editors frequently (e.g. tabs). The pool keeps initialized editors in the background
+ * and hands them out on demand.
+ *
+ * <p>Leased instances have a fresh {@link Document}. Released instances are reset (document
+ * and undo history, language, theme, options, provider cache, scroll position) and kept for
+ * reuse. Languages and themes registered with {@link Editor#registerLanguage(LanguageSupport)}
+ * and {@link Editor#registerTheme(EditorTheme)} cannot be unregistered from monaco and persist
+ * across leases. Instances that are idle for longer than the idle timeout are disposed, as
+ * long as the pool keeps at least its minimum number of idle instances.</p>
+ *
+ * <p>The pool must be used from the FX application thread.</p>
+ */
+public final class MonacoFXPool {
+
+    private final int minIdle;
+    private final int maxSize;
+    private final Duration idleTimeout;
+
+    private final Deque<IdleEntry> idle = new ArrayDeque<>();
+    private final Set<MonacoFX> leased = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Timeline evictionTimer;
+
+    private boolean disposed;
+
+    /**
+     * Creates a new pool and starts warming up {@code minIdle} instances.
+     * @param minIdle number of idle instances to keep warm
+     * @param maxSize maximum number of instances (leased and idle)
+     * @param idleTimeout time after which idle instances above {@code minIdle} are disposed
+     */
+    public MonacoFXPool(int minIdle, int maxSize, Duration idleTimeout) {
+        if (minIdle < 0 || maxSize < 1 || minIdle > maxSize) {
+            throw new IllegalArgumentException(
+                    "Invalid pool size: minIdle=" + minIdle + ", maxSize=" + maxSize);
+        }
+        this.minIdle = minIdle;
+        this.maxSize = maxSize;
+        this.idleTimeout = idleTimeout;
+
+        evictionTimer = new Timeline(new KeyFrame(
+                javafx.util.Duration.millis(Math.max(1, idleTimeout.toMillis() / 2)), e -> evictIdle()));
+        evictionTimer.setCycleCount(Animation.INDEFINITE);
+        evictionTimer.play();
+
+        fill();
+    }
+
+    /**
+     * Leases an instance. Ready instances are preferred. If no idle instance is available a
+     * new one is created, use {@link MonacoFX#whenReady()} to wait for its initialization.
+     * @return leased instance
+     * @throws IllegalStateException if the maximum number of instances is leased
+     */
+    public MonacoFX lease() {
+        checkNotDisposed();
+
+        MonacoFX monacoFX = pollIdle();
+        if (monacoFX == null) {
+            if (leased.size() >= maxSize) {
+                throw new IllegalStateException("Pool exhausted: " + maxSize + " instances are leased.");
+            }
+            monacoFX = new MonacoFX();
+        }
+        leased.add(monacoFX);
+
+        fill();
+
+        return monacoFX;
+    }
+
+    /**
+     * Returns a leased instance to the pool. The instance must have been removed from the
+     * scene graph.
+     * @param monacoFX instance to release
+     */
+    public void release(MonacoFX monacoFX) {
+        if (!leased.remove(monacoFX)) {
+            throw new IllegalArgumentException("Instance has not been leased from this pool.");
+        }
+        if (disposed) {
+            monacoFX.dispose();
+            return;
+        }
+        reset(monacoFX);
+        idle.addFirst(new IdleEntry(monacoFX, System.nanoTime()));
+    }
+
+    /**
+     * Disposes all idle instances. Leased instances are disposed when they are released.
+     */
+    public void dispose() {
+        disposed = true;
+        evictionTimer.stop();
+        idle.forEach(entry -> entry.monacoFX.dispose());
+        idle.clear();
+    }
+
+    /**
+     * @return number of idle instances
+     */
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    /**
+     * @return number of leased instances
+     */
+    public int getLeasedCount() {
+        return leased.size();
+    }
+
+    private MonacoFX pollIdle() {
+        for (Iterator<IdleEntry> it = idle.iterator(); it.hasNext(); ) {
+            IdleEntry entry = it.next();
+            if (entry.monacoFX.whenReady().isDone()) {
+                it.remove();
+                return entry.monacoFX;
+            }
+        }
+        IdleEntry entry = idle.pollFirst();
+        return entry == null ? null : entry.monacoFX;
+    }
+
+    private void fill() {
+        while (!disposed && idle.size() < minIdle && idle.size() + leased.size() < maxSize) {
+            idle.addLast(new IdleEntry(new MonacoFX(), System.nanoTime()));
+        }
+    }
+
+    private void evictIdle() {
+        long now = System.nanoTime();
+        for (Iterator<IdleEntry> it = idle.descendingIterator(); it.hasNext() && idle.size() > minIdle; ) {
+            IdleEntry entry = it.next();
+            if (now - entry.idleSince > idleTimeout.toNanos()) {
+                it.remove();
+                entry.monacoFX.dispose();
+            }
+        }
+    }
+
+    private static void reset(MonacoFX monacoFX) {
+        Editor editor = monacoFX.getEditor();
+        // a new document comes with a new model (content, undo history)
+        Document document = editor.getDocument();
+        editor.setDocument(new Document());
+        document.dispose();
+        editor.setCurrentLanguage(null);
+        editor.setCurrentTheme(null);
+        editor.setReadOnly(false);
+        editor.setLineNumberOffset(0);
+        editor.getViewController().setFollowTail(false);
+        editor.getViewController().setScrollPosition(0);
+        // cached results refer to the documents of the previous lease
+        editor.getProviderCache().clear();
+    }
+
+    private void checkNotDisposed() {
+        if (disposed) throw new IllegalStateException("Pool has been disposed.");
+    }
+
+    private static final class IdleEntry {
+        final MonacoFX monacoFX;
+        final long idleSince;
+
+        IdleEntry(MonacoFX monacoFX, long idleSince) {
+            this.monacoFX = monacoFX;
+            this.idleSince = idleSince;
+        }
+    }
+}
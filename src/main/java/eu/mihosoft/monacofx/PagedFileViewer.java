@@ -0,0 +1,261 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+import javafx.application.Platform;
+import javafx.beans.InvalidationListener;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Read-only viewer for files that are too large for a monaco model (or the heap), e.g., log files.
+ *
+ * <p>The file is indexed by a sparse line index over the memory-mapped file that is built in
+ * parallel chunks. Only a page of lines around the viewport is loaded into the document of the
+ * editor. Pages are exchanged as the scroll position of the {@link ViewController} approaches
+ * the page boundaries, the line numbers shown by the editor are the line numbers of the file.
+ * The viewer shows the beginning of the file before indexing is complete.</p>
+ *
+ * <p>The scrollbar of the editor covers the current page only, use {@link #scrollToLine(int)}
+ * to navigate to arbitrary lines. Lines are separated by {@code \n} (or {@code \r\n}), the
+ * charset must encode {@code \n} as the byte {@code 0x0A} (e.g., UTF-8 or ISO-8859-1). If a page
+ * cannot be read (e.g., because the file has been truncated), the viewer is closed and the
+ * error is passed to the error handler (see {@link #setErrorHandler(Consumer)}).</p>
+ */
+public final class PagedFileViewer implements Closeable {
+
+    // number of lines loaded into the document
+    private static final int PAGE_SIZE = 4096;
+    // distance (lines) of the viewport to the page boundaries that triggers a page change
+    private static final int PAGE_MARGIN = 1024;
+    private static final int DEFAULT_LINE_HEIGHT = 19;
+
+    private final Editor editor;
+    private final Charset charset;
+    private final MappedLineIndex index;
+    private final Document document = new Document();
+    private final ReadOnlyIntegerWrapper lineCountProperty = new ReadOnlyIntegerWrapper();
+    private final CompletableFuture<Void> indexed;
+
+    // restored by close()
+    private final Document previousDocument;
+    private final boolean previousReadOnly;
+    private final int previousLineNumberOffset;
+
+    // index of the first line and number of lines of the current page
+    private int pageStart;
+    private int pageLineCount;
+    private int lineHeight;
+    // true while a page is shown (scroll changes are caused by the viewer)
+    private boolean paging;
+    private boolean closed;
+    private final InvalidationListener scrollListener;
+    private Consumer<? super IOException> errorHandler = PagedFileViewer::logError;
+
+    /**
+     * Shows the specified file in the specified editor. The current document of the editor
+     * is restored by {@link #close()}. Must be called from the FX application thread.
+     * @param editor editor to show the file in
+     * @param path file to show
+     * @param charset charset of the file
+     * @throws IOException if the file cannot be opened
+     * @throws IllegalArgumentException if line breaks of the charset are not single bytes
+     */
+    public PagedFileViewer(Editor editor, Path path, Charset charset) throws IOException {
+        if (!MappedLineIndex.isSupported(charset)) {
+            throw new IllegalArgumentException("Unsupported charset: " + charset
+                    + " (line breaks must be encoded as single bytes)");
+        }
+        this.editor = editor;
+        this.charset = charset;
+        // more lines available -> fill the page (progress is reported by worker threads)
+        this.index = new MappedLineIndex(path,
+                () -> editor.getCommandQueue().runOnPulse(lineCountProperty, this::indexProgress));
+        this.indexed = index.whenComplete().thenApplyAsync(v -> null, Platform::runLater);
+
+        previousDocument = editor.getDocument();
+        previousReadOnly = editor.isReadOnly();
+        previousLineNumberOffset = editor.getLineNumberOffset();
+
+        editor.setDocument(document);
+        editor.setReadOnly(true);
+        editor.setLineNumberOffset(0);
+        scrollListener = ov -> {
+            if (!paging) editor.getCommandQueue().runOnPulse(this, this::checkPage);
+        };
+        editor.getViewController().scrollPositionProperty().addListener(scrollListener);
+    }
+
+    private void indexProgress() {
+        if (closed) return;
+        lineCountProperty.set(index.getLineCount());
+        if (pageLineCount < PAGE_SIZE && pageStart + pageLineCount < index.getLineCount()) {
+            showPage(pageStart, editor.getViewController().getScrollPosition());
+        }
+    }
+
+    /**
+     * Shows another page if the viewport is close to the boundaries of the current page.
+     */
+    private void checkPage() {
+        if (closed) return;
+        int lineCount = index.getLineCount();
+        int scrollPosition = editor.getViewController().getScrollPosition();
+        int lineHeight = getLineHeight();
+        int top = scrollPosition / lineHeight;
+        if ((top < PAGE_MARGIN && pageStart > 0)
+                || (top > pageLineCount - PAGE_MARGIN && pageStart + pageLineCount < lineCount)) {
+            int start = pageStartFor(pageStart + top, lineCount);
+            // keeps the viewport at the same line of the file
+            showPage(start, scrollPosition + (pageStart - start) * lineHeight);
+        }
+    }
+
+    /**
+     * @return start of a page that centers the specified line
+     */
+    private static int pageStartFor(int line, int lineCount) {
+        return Math.max(0, Math.min(line - PAGE_SIZE / 2, lineCount - PAGE_SIZE));
+    }
+
+    private void showPage(int start, int scrollPosition) {
+        int count = Math.min(PAGE_SIZE, index.getLineCount() - start);
+        String text;
+        try {
+            text = index.readLines(start, count, charset);
+        } catch (IOException ex) {
+            // called on pulses, e.g., the file has been truncated while it is viewed
+            fail(ex);
+            return;
+        }
+        pageStart = start;
+        pageLineCount = count;
+        paging = true;
+        try {
+            document.setText(text);
+            editor.setLineNumberOffset(start);
+            editor.getViewController().setScrollPosition(scrollPosition);
+            // applies line numbers and scroll position before the page is rendered
+            editor.getCommandQueue().flush();
+        } finally {
+            paging = false;
+        }
+    }
+
+    private void fail(IOException ex) {
+        try {
+            close();
+        } catch (IOException closeEx) {
+            ex.addSuppressed(closeEx);
+        }
+        errorHandler.accept(ex);
+    }
+
+    /**
+     * Sets the handler of errors that occur while pages are read. The viewer has been
+     * closed when the handler is called. By default errors are logged.
+     * @param errorHandler error handler
+     */
+    public void setErrorHandler(Consumer<? super IOException> errorHandler) {
+        this.errorHandler = errorHandler;
+    }
+
+    private static void logError(IOException ex) {
+        System.getLogger(PagedFileViewer.class.getName()).log(System.Logger.Level.WARNING,
+                "file cannot be read", ex);
+    }
+
+    private int getLineHeight() {
+        if (lineHeight == 0 && editor.getJSWindow() != null) {
+            lineHeight = ((Number) editor.getCommandQueue().call(editor.getJSWindow(), "getLineHeight")).intValue();
+        }
+        return lineHeight > 0 ? lineHeight : DEFAULT_LINE_HEIGHT;
+    }
+
+    /**
+     * Scrolls to the specified line of the file (centered in the viewport). The page
+     * containing the line is loaded if necessary.
+     * @param lineNumber line number (1-based)
+     */
+    public void scrollToLine(int lineNumber) {
+        int lineCount = index.getLineCount();
+        if (closed || lineCount == 0) return;
+        int line = Math.max(0, Math.min(lineNumber - 1, lineCount - 1));
+        if (line < pageStart || line >= pageStart + pageLineCount) {
+            showPage(pageStartFor(line, lineCount), editor.getViewController().getScrollPosition());
+            if (closed) return;
+        }
+        editor.getViewController().scrollToLineCenter(line - pageStart + 1);
+    }
+
+    /**
+     * Number of lines that can be shown. Increases while the file is indexed.
+     * @return line count property
+     */
+    public ReadOnlyIntegerProperty lineCountProperty() {
+        return lineCountProperty.getReadOnlyProperty();
+    }
+
+    public int getLineCount() {
+        return lineCountProperty.get();
+    }
+
+    /**
+     * @return future that is completed (on the FX thread) after the whole file has been indexed
+     */
+    public CompletableFuture<Void> whenIndexed() {
+        return indexed;
+    }
+
+    /**
+     * @return line number (1-based) of the first line of the current page
+     */
+    public int getPageStartLineNumber() {
+        return pageStart + 1;
+    }
+
+    /**
+     * Restores the previous document and options of the editor and closes the file.
+     * Must be called from the FX application thread.
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        editor.getViewController().scrollPositionProperty().removeListener(scrollListener);
+        editor.setDocument(previousDocument);
+        editor.setReadOnly(previousReadOnly);
+        editor.setLineNumberOffset(previousLineNumberOffset);
+        document.dispose();
+        index.close();
+    }
+}
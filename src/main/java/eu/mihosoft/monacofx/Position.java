@@ -31,4 +31,22 @@ public final class Position {
         this.lineNumber = lineNumber;
         this.column = column;
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Position)) return false;
+        Position other = (Position) o;
+        return lineNumber == other.lineNumber && column == other.column;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * lineNumber + column;
+    }
+
+    @Override
+    public String toString() {
+        return "Position[lineNumber=" + lineNumber + ", column=" + column + "]";
+    }
 }
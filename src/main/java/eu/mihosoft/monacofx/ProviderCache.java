@@ -0,0 +1,218 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * LRU cache of provider results (hovers, definitions) of an editor. Results are keyed by
+ * provider kind, document, document version and the range of the word at the requested
+ * position, i.e., requests for the same word of an unchanged document share one provider
+ * invocation. Pending results are shared as well. A provider invocation is cancelled if all
+ * requests waiting for it have been cancelled. Failed results are not cached.
+ */
+public final class ProviderCache {
+
+    static final int DEFAULT_CAPACITY = 256;
+
+    /**
+     * Cache key: word range (1-based) of a document version.
+     */
+    static final class Key {
+        final String kind;
+        final Document document;
+        final int versionId;
+        final int lineNumber;
+        final int startColumn;
+        final int endColumn;
+
+        Key(String kind, Document document, int versionId, int lineNumber, int startColumn, int endColumn) {
+            this.kind = kind;
+            this.document = document;
+            this.versionId = versionId;
+            this.lineNumber = lineNumber;
+            this.startColumn = startColumn;
+            this.endColumn = endColumn;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return versionId == key.versionId && lineNumber == key.lineNumber
+                    && startColumn == key.startColumn && endColumn == key.endColumn
+                    && kind.equals(key.kind) && document == key.document;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(kind, System.identityHashCode(document), versionId, lineNumber, startColumn, endColumn);
+        }
+    }
+
+    private static final class Entry {
+        final CancellationToken token = new CancellationToken();
+        CompletableFuture<?> future;
+        // requests waiting for the result that have not been cancelled
+        int waiting;
+    }
+
+    private final int capacity;
+    // guarded by itself (results complete on provider threads)
+    private final Map<Key, Entry> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    ProviderCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    ProviderCache(int capacity) {
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, ProviderCache.Entry> eldest) {
+                return size() > ProviderCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached result for the specified key or invokes the provider.
+     * @param key cache key
+     * @param provider computes the result, receives a token that is cancelled if no request
+     *                 waits for the result anymore
+     * @param requestToken token of the request
+     * @param <T> result type
+     * @return future result of the request (cancelling it does not affect the cached result)
+     */
+    @SuppressWarnings("unchecked")
+    <T> CompletableFuture<T> get(Key key, Function<CancellationToken, CompletableFuture<T>> provider,
+                                 CancellationToken requestToken) {
+        Entry entry;
+        boolean created = false;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry == null) {
+                entry = new Entry();
+                entries.put(key, entry);
+                created = true;
+            }
+            entry.waiting++;
+        }
+
+        if (created) {
+            misses.increment();
+            CompletableFuture<T> future;
+            try {
+                future = provider.apply(entry.token);
+                if (future == null) future = CompletableFuture.completedFuture(null);
+            } catch (RuntimeException ex) {
+                future = CompletableFuture.failedFuture(ex);
+            }
+            Entry e = entry;
+            synchronized (entries) {
+                entry.future = future;
+            }
+            future.whenComplete((value, error) -> {
+                if (error != null) remove(key, e);
+            });
+        } else {
+            hits.increment();
+        }
+
+        CompletableFuture<T> shared;
+        synchronized (entries) {
+            shared = (CompletableFuture<T>) entry.future;
+        }
+        // each request gets its own future
+        CompletableFuture<T> result = shared.thenApply(value -> value);
+        Entry e = entry;
+        requestToken.onCancellationRequested(() -> {
+            boolean cancel;
+            synchronized (entries) {
+                cancel = --e.waiting == 0 && !e.future.isDone();
+            }
+            if (cancel) {
+                remove(key, e);
+                e.token.cancel();
+                e.future.cancel(false);
+            }
+            result.cancel(false);
+        });
+        return result;
+    }
+
+    private void remove(Key key, Entry entry) {
+        synchronized (entries) {
+            entries.remove(key, entry);
+        }
+    }
+
+    /**
+     * Removes all cached results and resets the hit and miss counts.
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+        hits.reset();
+        misses.reset();
+    }
+
+    /**
+     * @return number of cached results
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * @return number of requests that have been served from the cache
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return number of requests that invoked a provider
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "ProviderCache[size=" + size() + ", hits=" + getHitCount() + ", misses=" + getMissCount() + "]";
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Executes submitted tasks on the FX application thread once per pulse. Tasks that are
+ * submitted with the same key before the next pulse replace each other, i.e., only the
+ * most recent one is executed. Tasks may be submitted from any thread.
+ */
+final class PulseCoalescer {
+
+    private final Map<Object, Runnable> tasks = new LinkedHashMap<>();
+    private AnimationTimer timer;
+    private boolean scheduled;
+
+    /**
+     * Submits the specified task for execution on the next pulse.
+     * @param key key of the task (tasks with equal keys are merged)
+     * @param task task to execute
+     */
+    void submit(Object key, Runnable task) {
+        synchronized (tasks) {
+            // re-insert, so that the task is executed in submission order
+            tasks.remove(key);
+            tasks.put(key, task);
+            if (scheduled) return;
+            scheduled = true;
+        }
+        if (Platform.isFxApplicationThread()) {
+            startTimer();
+        } else {
+            Platform.runLater(this::startTimer);
+        }
+    }
+
+    /**
+     * Removes the pending task with the specified key.
+     * @param key key of the task to remove
+     */
+    void cancel(Object key) {
+        synchronized (tasks) {
+            tasks.remove(key);
+        }
+    }
+
+    /**
+     * Executes all pending tasks immediately. Must be called from the FX application thread.
+     */
+    void flush() {
+        List<Runnable> pending;
+        synchronized (tasks) {
+            if (tasks.isEmpty()) return;
+            pending = new ArrayList<>(tasks.values());
+            tasks.clear();
+        }
+        pending.forEach(Runnable::run);
+    }
+
+    private void startTimer() {
+        if (timer == null) {
+            timer = new AnimationTimer() {
+                @Override
+                public void handle(long now) {
+                    stop();
+                    synchronized (tasks) {
+                        scheduled = false;
+                    }
+                    flush();
+                }
+            };
+        }
+        timer.start();
+    }
+}
@@ -76,17 +76,31 @@ public final class Rule {
         this.fontStyle = null;
     }
 
-    public String toJS() {
-        String result = "{";
+    /**
+     * @return this rule as JSON object
+     */
+    public String toJSON() {
+        JsonWriter json = new JsonWriter();
+        write(json);
+        return json.toString();
+    }
 
-        result+="token: '"+token+"',\n"
-            +(foreground==null?"":("foreground: '"+foreground+"',\n"))
-            +(background==null?"":("background: '"+background+"',\n"))
-            +(font==null?"":("font: '"+font+"',\n"))
-            +(fontStyle==null?"":("fontStyle: '"+fontStyle+"',\n"))
-            +(fontSize==null?"":("fontSize: '"+fontSize+"',\n"))
-            +"}";
+    /**
+     * @return this rule as JSON object (JSON is valid js)
+     * @deprecated use {@link #toJSON()}
+     */
+    @Deprecated
+    public String toJS() {
+        return toJSON();
+    }
 
-        return result;
+    void write(JsonWriter json) {
+        json.beginObject().name("token").value(token);
+        if (foreground != null) json.name("foreground").value(foreground);
+        if (background != null) json.name("background").value(background);
+        if (font != null) json.name("font").value(font);
+        if (fontStyle != null) json.name("fontStyle").value(fontStyle);
+        if (fontSize != null) json.name("fontSize").value(fontSize);
+        json.endObject();
     }
-}
\ No newline at end of file
+}
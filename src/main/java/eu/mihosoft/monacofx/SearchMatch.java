@@ -0,0 +1,53 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+/**
+ * Match of a {@link SearchQuery} in a {@link Document}. Offsets are 0-based and refer to
+ * the content of the document version the search was performed on.
+ */
+public final class SearchMatch {
+    public final Document document;
+    /** offset of the match */
+    public final int offset;
+    /** length of the match */
+    public final int length;
+    /** document version the match refers to */
+    public final int versionId;
+    // replacement of the match (only computed for replace-all)
+    final String replacement;
+
+    SearchMatch(Document document, int offset, int length, int versionId, String replacement) {
+        this.document = document;
+        this.offset = offset;
+        this.length = length;
+        this.versionId = versionId;
+        this.replacement = replacement;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchMatch[offset=" + offset + ", length=" + length + ", versionId=" + versionId + "]";
+    }
+}
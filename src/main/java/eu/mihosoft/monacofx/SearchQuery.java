@@ -0,0 +1,79 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+import java.util.regex.Pattern;
+
+/**
+ * Query of a {@link SearchService}, equivalent to the options of monaco's find widget.
+ */
+public final class SearchQuery {
+    /** literal text or regular expression (java syntax) */
+    public final String searchString;
+    /** whether {@link #searchString} is a regular expression */
+    public final boolean isRegex;
+    public final boolean matchCase;
+    /** whether only matches that are not adjacent to word characters are found */
+    public final boolean wholeWord;
+
+    public SearchQuery(String searchString, boolean isRegex, boolean matchCase, boolean wholeWord) {
+        this.searchString = searchString;
+        this.isRegex = isRegex;
+        this.matchCase = matchCase;
+        this.wholeWord = wholeWord;
+    }
+
+    /**
+     * Creates a case-sensitive query for the specified literal text.
+     * @param searchString text to search
+     */
+    public SearchQuery(String searchString) {
+        this(searchString, false, true, false);
+    }
+
+    /**
+     * @return compiled pattern ({@code ^} and {@code $} match at line boundaries)
+     * @throws java.util.regex.PatternSyntaxException if the regular expression is invalid
+     */
+    Pattern toPattern() {
+        String regex = isRegex ? searchString : Pattern.quote(searchString);
+        if (wholeWord) regex = "(?<!\\w)(?:" + regex + ")(?!\\w)";
+        int flags = Pattern.MULTILINE;
+        if (!matchCase) flags |= Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+        return Pattern.compile(regex, flags);
+    }
+
+    /**
+     * @return whether matches may span multiple lines
+     */
+    boolean isMultiLine() {
+        return isRegex || searchString.indexOf('\n') >= 0;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchQuery[searchString='" + searchString + "', isRegex=" + isRegex
+                + ", matchCase=" + matchCase + ", wholeWord=" + wholeWord + "]";
+    }
+}
@@ -0,0 +1,318 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+import javafx.application.Platform;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Find and replace on the java side copy of documents. The content is split into line-aligned
+ * chunks that are searched in parallel on a fork/join pool, searches of multiple documents run
+ * concurrently. Matches are reported per chunk as they are found and highlighted as decorations
+ * (see {@link #setMatchOptions(DecorationOptions)}). Replace-all applies all replacements of a
+ * document as one undoable edit.
+ *
+ * <p>Methods must be called from the FX application thread, futures are completed and
+ * listeners are notified on the FX application thread.</p>
+ */
+public final class SearchService {
+
+    static final int DEFAULT_CHUNK_SIZE = 256 * 1024;
+    // multi-line matches may extend this far (plus the rest of the line) beyond a chunk
+    static final int MAX_OVERRUN = 4096;
+    // replace-all is repeated if the document changes while it is searched
+    private static final int MAX_REPLACE_ATTEMPTS = 3;
+
+    private final ForkJoinPool pool;
+    private DecorationOptions matchOptions = new DecorationOptions("findMatch");
+
+    /**
+     * Creates a search service that uses the common fork/join pool.
+     */
+    public SearchService() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a search service that uses the specified pool.
+     * @param pool pool that searches the chunks
+     */
+    public SearchService(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Searches the specified document. The matches of the previous search of the document
+     * are no longer highlighted.
+     * @param document document to search
+     * @param query search query
+     * @param listener notified with the matches of each chunk as they are found (may be {@code null})
+     * @return future that is completed with all matches in document order
+     */
+    public CompletableFuture<List<SearchMatch>> find(Document document, SearchQuery query,
+                                                    Consumer<List<SearchMatch>> listener) {
+        clearHighlights(document);
+        Search search;
+        try {
+            search = new Search(document, document.getTextBuffer(), document.getVersionId(),
+                    query, null, DEFAULT_CHUNK_SIZE);
+        } catch (PatternSyntaxException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+        List<Decoration> decorations = new ArrayList<>();
+        document.getDecorations().setGroup(this, decorations);
+        return search.run(pool, matches -> Platform.runLater(() -> {
+            highlight(document, decorations, matches);
+            if (listener != null) listener.accept(matches);
+        })).thenApplyAsync(matches -> matches, Platform::runLater);
+    }
+
+    /**
+     * Searches the specified documents concurrently.
+     * @param documents documents to search
+     * @param query search query
+     * @param listener notified with the matches of each chunk as they are found (may be {@code null})
+     * @return future that is completed with all matches per document
+     * @see #find(Document, SearchQuery, Consumer)
+     */
+    public CompletableFuture<Map<Document, List<SearchMatch>>> findAll(Collection<Document> documents,
+            SearchQuery query, Consumer<List<SearchMatch>> listener) {
+        Map<Document, CompletableFuture<List<SearchMatch>>> searches = new LinkedHashMap<>();
+        for (Document document : documents) {
+            searches.put(document, find(document, query, listener));
+        }
+        return CompletableFuture.allOf(searches.values().toArray(new CompletableFuture<?>[0])).thenApply(v -> {
+            Map<Document, List<SearchMatch>> result = new LinkedHashMap<>();
+            searches.forEach((document, search) -> result.put(document, search.join()));
+            return result;
+        });
+    }
+
+    /**
+     * Replaces all matches in the specified document with one undoable edit. For regular
+     * expressions the replacement may refer to groups ({@code $1}, {@code ${name}}).
+     * @param document document to change
+     * @param query search query
+     * @param replacement replacement text
+     * @return future that is completed with the number of replaced matches
+     */
+    public CompletableFuture<Integer> replaceAll(Document document, SearchQuery query, String replacement) {
+        return replaceAll(document, query, replacement, MAX_REPLACE_ATTEMPTS);
+    }
+
+    private CompletableFuture<Integer> replaceAll(Document document, SearchQuery query,
+                                                  String replacement, int attempts) {
+        Search search;
+        try {
+            search = new Search(document, document.getTextBuffer(), document.getVersionId(),
+                    query, replacement, DEFAULT_CHUNK_SIZE);
+        } catch (PatternSyntaxException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+        return search.run(pool, null).thenComposeAsync(matches -> {
+            if (document.getVersionId() != search.versionId) {
+                if (attempts > 1) return replaceAll(document, query, replacement, attempts - 1);
+                return CompletableFuture.failedFuture(new ConcurrentModificationException(
+                        "Document changed during replace-all."));
+            }
+            List<TextEdit> edits = new ArrayList<>(matches.size());
+            for (SearchMatch match : matches) {
+                edits.add(new TextEdit(match.offset, match.length, match.replacement));
+            }
+            clearHighlights(document);
+            document.applyEdits(edits);
+            return CompletableFuture.completedFuture(matches.size());
+        }, Platform::runLater);
+    }
+
+    /**
+     * Replaces all matches in the specified documents, one undoable edit per document.
+     * @param documents documents to change
+     * @param query search query
+     * @param replacement replacement text
+     * @return future that is completed with the total number of replaced matches
+     * @see #replaceAll(Document, SearchQuery, String)
+     */
+    public CompletableFuture<Integer> replaceAll(Collection<Document> documents, SearchQuery query,
+                                                 String replacement) {
+        CompletableFuture<Integer> result = CompletableFuture.completedFuture(0);
+        for (Document document : documents) {
+            result = result.thenCombine(replaceAll(document, query, replacement), Integer::sum);
+        }
+        return result;
+    }
+
+    private void highlight(Document document, List<Decoration> decorations, List<SearchMatch> matches) {
+        // superseded by another search or outdated
+        DecorationStore store = document.getDecorations();
+        if (store.getGroup(this) != decorations || matches.isEmpty()
+                || matches.get(0).versionId != document.getVersionId()) return;
+        for (SearchMatch match : matches) {
+            decorations.add(store.add(match.offset, match.offset + match.length, matchOptions));
+        }
+    }
+
+    /**
+     * Removes the highlighted matches of the specified document.
+     * @param document document
+     */
+    public void clearHighlights(Document document) {
+        document.getDecorations().removeGroup(this);
+    }
+
+    /**
+     * Sets the options of the decorations that highlight matches (default: monaco's
+     * {@code findMatch} class). Applies to subsequent searches.
+     * @param options decoration options
+     */
+    public void setMatchOptions(DecorationOptions options) {
+        this.matchOptions = options;
+    }
+
+    public DecorationOptions getMatchOptions() {
+        return matchOptions;
+    }
+
+    /**
+     * Search of an immutable snapshot of a document.
+     */
+    static final class Search {
+
+        final Document document;
+        final TextBuffer content;
+        final int versionId;
+        final Pattern pattern;
+        final boolean multiLine;
+        // replacement for Matcher.appendReplacement() (null: find only)
+        final String replacement;
+        final int chunkSize;
+
+        Search(Document document, TextBuffer content, int versionId, SearchQuery query,
+               String replacement, int chunkSize) {
+            this.document = document;
+            this.content = content;
+            this.versionId = versionId;
+            this.pattern = query.searchString.isEmpty() ? null : query.toPattern();
+            this.multiLine = query.isMultiLine();
+            this.replacement = replacement == null || query.isRegex
+                    ? replacement : Matcher.quoteReplacement(replacement);
+            this.chunkSize = chunkSize;
+        }
+
+        /**
+         * Searches all chunks on the specified executor.
+         * @param executor executor of the chunk searches
+         * @param chunkListener notified (on a worker thread) with the matches of each chunk
+         *                      that contains matches (may be {@code null})
+         * @return future that is completed with all matches in document order
+         */
+        CompletableFuture<List<SearchMatch>> run(Executor executor, Consumer<List<SearchMatch>> chunkListener) {
+            if (pattern == null) return CompletableFuture.completedFuture(List.of());
+            int chunkCount = Math.max(1, (int) ((content.length() + (long) chunkSize - 1) / chunkSize));
+            List<CompletableFuture<List<SearchMatch>>> chunks = new ArrayList<>(chunkCount);
+            for (int i = 0; i < chunkCount; i++) {
+                int chunk = i;
+                chunks.add(CompletableFuture.supplyAsync(() -> {
+                    List<SearchMatch> matches = searchChunk(chunk);
+                    if (chunkListener != null && !matches.isEmpty()) chunkListener.accept(matches);
+                    return matches;
+                }, executor));
+            }
+            return CompletableFuture.allOf(chunks.toArray(new CompletableFuture<?>[0])).thenApply(v -> {
+                List<SearchMatch> result = new ArrayList<>();
+                int lastEnd = 0;
+                for (CompletableFuture<List<SearchMatch>> chunk : chunks) {
+                    for (SearchMatch match : chunk.join()) {
+                        // multi-line matches of the previous chunk may overlap matches of the next one
+                        if (match.offset < lastEnd) continue;
+                        result.add(match);
+                        lastEnd = match.offset + match.length;
+                    }
+                }
+                return result;
+            });
+        }
+
+        /**
+         * Searches the lines starting in the specified chunk.
+         */
+        private List<SearchMatch> searchChunk(int chunk) {
+            int length = content.length();
+            int chunkStart = (int) Math.min(length, (long) chunk * chunkSize);
+            int chunkEnd = (int) Math.min(length, (long) (chunk + 1) * chunkSize);
+            // no line starts in the chunk, i.e., it is part of a line of a previous chunk
+            int start = lineStartAtOrAfter(chunkStart, chunkEnd);
+            if (start >= chunkEnd) return List.of();
+            int end = lineStartAtOrAfter(chunkEnd, length);
+            // ends at a line boundary, i.e., '$' and '\b' are evaluated correctly
+            int textEnd = multiLine ? lineStartAtOrAfter((int) Math.min(length, (long) end + MAX_OVERRUN), length) : end;
+            String text = content.substring(start, textEnd);
+
+            List<SearchMatch> matches = new ArrayList<>();
+            Matcher matcher = pattern.matcher(text);
+            StringBuilder replaced = replacement == null ? null : new StringBuilder();
+            int appendPosition = 0;
+            while (matcher.find()) {
+                if (matcher.start() >= end - start) break;
+                if (matcher.end() == matcher.start()) continue;
+                String matchReplacement = null;
+                if (replaced != null) {
+                    // appends the text since the last match followed by the replacement
+                    replaced.setLength(0);
+                    matcher.appendReplacement(replaced, replacement);
+                    matchReplacement = replaced.substring(matcher.start() - appendPosition);
+                    appendPosition = matcher.end();
+                }
+                matches.add(new SearchMatch(document, start + matcher.start(),
+                        matcher.end() - matcher.start(), versionId, matchReplacement));
+            }
+            return matches;
+        }
+
+        /**
+         * @return first line start at or after the specified offset, {@code limit} if there
+         * is none before the limit
+         */
+        private int lineStartAtOrAfter(int offset, int limit) {
+            if (offset == 0) return 0;
+            for (int i = offset - 1; i < limit; i++) {
+                if (content.charAt(i) == '\n') return i + 1;
+            }
+            return limit;
+        }
+    }
+}
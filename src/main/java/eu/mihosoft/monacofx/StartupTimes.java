@@ -0,0 +1,58 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+import java.time.Duration;
+
+/**
+ * Startup times of a {@link MonacoFX} instance.
+ */
+public final class StartupTimes {
+    /** time from starting to load the editor page until the page has been loaded */
+    public final Duration pageLoad;
+    /**
+     * time from page load until the monaco editor has been created ({@code null} if the editor
+     * was created before the page load completed, i.e., it is included in {@link #pageLoad})
+     */
+    public final Duration editorCreation;
+
+    public StartupTimes(Duration pageLoad, Duration editorCreation) {
+        this.pageLoad = pageLoad;
+        this.editorCreation = editorCreation;
+    }
+
+    /**
+     * @return total startup time
+     */
+    public Duration getTotal() {
+        return editorCreation == null ? pageLoad : pageLoad.plus(editorCreation);
+    }
+
+    @Override
+    public String toString() {
+        return "StartupTimes[pageLoad=" + pageLoad.toMillis() + "ms, editorCreation="
+                + (editorCreation == null ? "unknown" : editorCreation.toMillis() + "ms")
+                + ", total=" + getTotal().toMillis() + "ms]";
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+import java.util.List;
+
+/**
+ * Symbol, e.g., a class or method declaration, found by a {@link SymbolExtractor}.
+ */
+public final class Symbol {
+
+    public enum Kind {
+        FILE(0), MODULE(1), NAMESPACE(2), PACKAGE(3), CLASS(4), METHOD(5), PROPERTY(6), FIELD(7),
+        CONSTRUCTOR(8), ENUM(9), INTERFACE(10), FUNCTION(11), VARIABLE(12), CONSTANT(13), STRING(14),
+        NUMBER(15), BOOLEAN(16), ARRAY(17), OBJECT(18), KEY(19), NULL(20), ENUM_MEMBER(21), STRUCT(22),
+        EVENT(23), OPERATOR(24), TYPE_PARAMETER(25);
+
+        // value of monaco's SymbolKind
+        final int value;
+
+        Kind(int value) {
+            this.value = value;
+        }
+    }
+
+    public final String name;
+    public final Kind kind;
+    /** document that contains the symbol (may be {@code null} for symbols of a text snapshot) */
+    public final Document document;
+    /** line of the symbol (1-based) */
+    public final int lineNumber;
+    /** column of the first character of the symbol name (1-based) */
+    public final int startColumn;
+    /** column after the last character of the symbol name (1-based, exclusive) */
+    public final int endColumn;
+
+    public Symbol(String name, Kind kind, Document document, int lineNumber, int startColumn, int endColumn) {
+        this.name = name;
+        this.kind = kind;
+        this.document = document;
+        this.lineNumber = lineNumber;
+        this.startColumn = startColumn;
+        this.endColumn = endColumn;
+    }
+
+    @Override
+    public String toString() {
+        return "Symbol[name=" + name + ", kind=" + kind + ", lineNumber=" + lineNumber
+                + ", startColumn=" + startColumn + ", endColumn=" + endColumn + "]";
+    }
+
+    /**
+     * @param symbols symbols to serialize
+     * @return the specified symbols as JSON array
+     */
+    static String toJSON(List<Symbol> symbols) {
+        JsonWriter json = new JsonWriter().beginArray();
+        if (symbols != null) {
+            for (Symbol symbol : symbols) {
+                json.beginObject()
+                        .name("name").value(symbol.name)
+                        .name("kind").value(symbol.kind.value)
+                        .name("lineNumber").value(symbol.lineNumber)
+                        .name("startColumn").value(symbol.startColumn)
+                        .name("endColumn").value(symbol.endColumn)
+                        .endObject();
+            }
+        }
+        return json.endArray().toString();
+    }
+}
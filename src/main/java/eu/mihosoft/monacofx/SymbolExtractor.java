@@ -0,0 +1,87 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the symbols of a language line by line. Symbols are line-local, i.e., a symbol is
+ * recognized from the content of the line that contains its name. This allows to re-index
+ * only the lines touched by a change (see {@link SymbolIndex}).
+ */
+@FunctionalInterface
+public interface SymbolExtractor {
+
+    /**
+     * Receives the symbols of a line.
+     */
+    @FunctionalInterface
+    interface Sink {
+        /**
+         * @param name symbol name
+         * @param kind symbol kind
+         * @param startColumn column of the first character of the name (1-based)
+         * @param endColumn column after the last character of the name (1-based, exclusive)
+         */
+        void accept(String name, Symbol.Kind kind, int startColumn, int endColumn);
+    }
+
+    /**
+     * Reports the symbols of the specified line to the sink. May be called from any thread.
+     * @param line content of the line without line break
+     * @param sink receives the symbols
+     */
+    void extractSymbols(CharSequence line, Sink sink);
+
+    /**
+     * Creates an extractor that reports the first capturing group of every match of the
+     * specified pattern, e.g., {@code class\s+(\w+)}.
+     * @param pattern pattern with at least one capturing group
+     * @param kind kind of the reported symbols
+     * @return pattern-based symbol extractor
+     */
+    static SymbolExtractor pattern(Pattern pattern, Symbol.Kind kind) {
+        return (line, sink) -> {
+            Matcher m = pattern.matcher(line);
+            while (m.find()) {
+                if (m.start(1) < 0 || m.start(1) == m.end(1)) continue;
+                sink.accept(m.group(1), kind, m.start(1) + 1, m.end(1) + 1);
+            }
+        };
+    }
+
+    /**
+     * Combines the specified extractors.
+     * @param extractors extractors to combine
+     * @return extractor that reports the symbols of all specified extractors
+     */
+    static SymbolExtractor of(SymbolExtractor... extractors) {
+        return (line, sink) -> {
+            for (SymbolExtractor extractor : extractors) {
+                extractor.extractSymbols(line, sink);
+            }
+        };
+    }
+}
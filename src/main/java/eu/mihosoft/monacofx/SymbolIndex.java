@@ -0,0 +1,701 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+import javafx.beans.InvalidationListener;
+import javafx.beans.Observable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
+
+/**
+ * Workspace-wide index of the symbols of many documents, e.g., for "go to symbol". Symbols
+ * are found by the {@link SymbolExtractor} of the document language (see
+ * {@link LanguageSupport#getSymbolExtractor()}).
+ *
+ * <p>The index follows the changes of each document and only extracts the symbols of the
+ * lines touched by a change again. Lines are re-indexed lazily, i.e., when the index is queried.
+ * Symbol names are stored once in a name table (the characters of all names in one
+ * {@code char[]}). The symbols of a document are packed into a single {@code int[]} (name id,
+ * kind, start column, end column per symbol) with an {@code int[]} of the first symbol of
+ * each line.</p>
+ *
+ * <p>Queries match names fuzzily (characters of the query in order, case-insensitive) and
+ * rank word starts and consecutive characters higher. Each name is scored once per query,
+ * prefiltered by a bit mask of the characters it contains. If a query extends the previous
+ * query only the names that matched the previous query are scored. At most as many names as
+ * results are selected, the symbols are scanned until their occurrences are collected.</p>
+ *
+ * <p>Must be accessed from the FX application thread.</p>
+ */
+public final class SymbolIndex {
+
+    // ints per symbol: name id, kind, start column, end column
+    private static final int SYMBOL_SIZE = 4;
+    private static final Symbol.Kind[] KINDS = Symbol.Kind.values();
+    // lines extracted between cancellation checks
+    private static final int CANCELLATION_CHECK_INTERVAL = 1024;
+
+    private final Map<String, SymbolExtractor> extractors = new HashMap<>();
+    private final Map<Document, DocumentSymbols> documents = new LinkedHashMap<>();
+    private final NameTable names = new NameTable();
+    private final LineCollector collector = new LineCollector();
+
+    // score of each name for the previous query (0: no match)
+    private int[] scores = new int[0];
+    // rank of the names selected by the current query (-1: not selected)
+    private int[] ranks = new int[0];
+    // names that matched the previous query (valid while the name table is unchanged)
+    private int[] matches = new int[0];
+    private int matchCount;
+    private String previousQuery;
+    private int previousGeneration;
+
+    /**
+     * Registers the symbol extractor of the specified language. Documents of this
+     * language are indexed again.
+     * @param language language support (languages without symbol extractor are not indexed)
+     */
+    public void addLanguage(LanguageSupport language) {
+        SymbolExtractor extractor = language.getSymbolExtractor();
+        if (extractor == null) {
+            extractors.remove(language.getName());
+        } else {
+            extractors.put(language.getName(), extractor);
+        }
+        for (DocumentSymbols symbols : documents.values()) {
+            if (language.getName().equals(symbols.document.getLanguage())) symbols.refresh();
+        }
+    }
+
+    /**
+     * Adds the specified document to the index.
+     * @param document document to add
+     */
+    public void addDocument(Document document) {
+        if (documents.containsKey(document)) return;
+        DocumentSymbols symbols = new DocumentSymbols(document);
+        documents.put(document, symbols);
+        document.addChangeListener(symbols);
+        document.languageProperty().addListener(symbols);
+        symbols.refresh();
+    }
+
+    /**
+     * Removes the specified document from the index.
+     * @param document document to remove
+     */
+    public void removeDocument(Document document) {
+        DocumentSymbols symbols = documents.remove(document);
+        if (symbols == null) return;
+        document.removeChangeListener(symbols);
+        document.languageProperty().removeListener(symbols);
+        symbols.clear();
+    }
+
+    /**
+     * Returns the symbols of the specified document in document order.
+     * @param document indexed document
+     * @return the symbols of the document (empty if the document is not indexed)
+     */
+    public List<Symbol> getSymbols(Document document) {
+        DocumentSymbols symbols = documents.get(document);
+        if (symbols == null) return List.of();
+        symbols.update();
+        List<Symbol> result = new ArrayList<>(symbols.symbolCount);
+        for (int line = 0; line < symbols.lineCount; line++) {
+            for (int s = symbols.lineStarts[line]; s < symbols.lineStarts[line + 1]; s++) {
+                result.add(symbols.toSymbol(s, line));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds the symbols whose names match the specified query, best matches first.
+     * @param query characters the names have to contain in this order (case-insensitive)
+     * @param maxResults maximum number of results
+     * @return the best matching symbols
+     */
+    public List<Symbol> find(String query, int maxResults) {
+        for (DocumentSymbols symbols : documents.values()) {
+            symbols.update();
+        }
+        if (query.isEmpty() || maxResults <= 0) return List.of();
+
+        int minScore = scoreNames(query, maxResults);
+        if (minScore == 0) return List.of();
+
+        // select the best names, every name occurs at least once, i.e., at most maxResults
+        // names are needed (the head of the queue is the worst name)
+        PriorityQueue<Integer> bestNames = new PriorityQueue<>(maxResults, (a, b) -> compareNames(b, a));
+        for (int m = 0; m < matchCount; m++) {
+            int id = matches[m];
+            if (scores[id] < minScore) continue;
+            if (bestNames.size() < maxResults) {
+                bestNames.add(id);
+            } else if (compareNames(id, bestNames.peek()) < 0) {
+                bestNames.poll();
+                bestNames.add(id);
+            }
+        }
+        int[] selected = new int[bestNames.size()];
+        for (int i = selected.length - 1; i >= 0; i--) {
+            selected[i] = bestNames.poll();
+        }
+
+        // number of occurrences taken from each name (best names first)
+        if (ranks.length < names.size) {
+            ranks = new int[names.names.length];
+            Arrays.fill(ranks, -1);
+        }
+        int[] needed = new int[selected.length];
+        int resultCount = 0;
+        int rankCount = 0;
+        while (rankCount < selected.length && resultCount < maxResults) {
+            int id = selected[rankCount];
+            needed[rankCount] = Math.min(names.referenceCounts[id], maxResults - resultCount);
+            resultCount += needed[rankCount];
+            ranks[id] = rankCount++;
+        }
+
+        // collect the occurrences in document order
+        Symbol[] result = new Symbol[resultCount];
+        int[] resultRanks = new int[resultCount];
+        int collected = 0;
+        for (DocumentSymbols symbols : documents.values()) {
+            int[] packed = symbols.symbols;
+            int end = symbols.symbolCount * SYMBOL_SIZE;
+            for (int i = 0; i < end && collected < resultCount; i += SYMBOL_SIZE) {
+                int rank = ranks[packed[i]];
+                if (rank < 0 || needed[rank] == 0) continue;
+                needed[rank]--;
+                int symbol = i / SYMBOL_SIZE;
+                result[collected] = symbols.toSymbol(symbol, symbols.lineOf(symbol));
+                resultRanks[collected++] = rank;
+            }
+        }
+        for (int r = 0; r < rankCount; r++) {
+            ranks[selected[r]] = -1;
+        }
+
+        // stable sort by rank (counting sort)
+        int[] rankStarts = new int[rankCount + 1];
+        for (int i = 0; i < collected; i++) {
+            rankStarts[resultRanks[i] + 1]++;
+        }
+        for (int r = 0; r < rankCount; r++) {
+            rankStarts[r + 1] += rankStarts[r];
+        }
+        Symbol[] sorted = new Symbol[collected];
+        for (int i = 0; i < collected; i++) {
+            sorted[rankStarts[resultRanks[i]]++] = result[i];
+        }
+        return Arrays.asList(sorted);
+    }
+
+    /**
+     * Compares names by score (descending), length and name.
+     */
+    private int compareNames(int a, int b) {
+        if (scores[a] != scores[b]) return Integer.compare(scores[b], scores[a]);
+        int length = names.lengths[a];
+        if (length != names.lengths[b]) return Integer.compare(length, names.lengths[b]);
+        char[] chars = names.chars;
+        for (int i = 0; i < length; i++) {
+            char charA = chars[names.starts[a] + i];
+            char charB = chars[names.starts[b] + i];
+            if (charA != charB) return charA - charB;
+        }
+        return 0;
+    }
+
+    /**
+     * Scores the names for the specified query (see {@link #scores}).
+     * @return the minimum score of the symbols that can make it into the result
+     * (0 if no name matches)
+     */
+    private int scoreNames(String query, int maxResults) {
+        // names that do not match a query do not match its extensions either
+        boolean refine = previousQuery != null && previousGeneration == names.generation
+                && query.length() > previousQuery.length()
+                && query.regionMatches(true, 0, previousQuery, 0, previousQuery.length());
+
+        if (scores.length < names.size) scores = new int[names.names.length];
+        int[] candidates = refine ? matches : null;
+        int candidateCount = refine ? matchCount : names.size;
+        if (!refine && matches.length < names.size) matches = new int[names.names.length];
+
+        // count the occurrences per score
+        int[] occurrences = new int[maxScore(query) + 1];
+        long queryMask = mask(query);
+        matchCount = 0;
+        for (int c = 0; c < candidateCount; c++) {
+            int id = refine ? candidates[c] : c;
+            int score = names.referenceCounts[id] > 0 && (names.masks[id] & queryMask) == queryMask
+                    ? score(names.chars, names.starts[id], names.lengths[id], query) : 0;
+            scores[id] = score;
+            if (score > 0) {
+                matches[matchCount++] = id;
+                occurrences[score] += names.referenceCounts[id];
+            }
+        }
+        previousQuery = query;
+        previousGeneration = names.generation;
+
+        // symbols with lower scores cannot make it into the result
+        int minScore = occurrences.length;
+        int count = 0;
+        while (minScore > 1 && count < maxResults) {
+            count += occurrences[--minScore];
+        }
+        return count == 0 ? 0 : minScore;
+    }
+
+    /**
+     * @return number of indexed symbols (lines that have not been re-indexed yet have no symbols)
+     */
+    public int getSymbolCount() {
+        int count = 0;
+        for (DocumentSymbols symbols : documents.values()) {
+            count += symbols.symbolCount;
+        }
+        return count;
+    }
+
+    /**
+     * Extracts the symbols of the specified text (e.g. for the outline of a document).
+     * @param extractor symbol extractor
+     * @param document document the symbols refer to (may be {@code null})
+     * @param text text to scan
+     * @param token cancellation token
+     * @return the symbols in document order
+     * @throws CancellationException if cancellation has been requested
+     */
+    static List<Symbol> extractSymbols(SymbolExtractor extractor, Document document,
+                                       TextBuffer text, CancellationToken token) {
+        List<Symbol> result = new ArrayList<>();
+        int lineCount = text.getLineCount();
+        for (int line = 1; line <= lineCount; line++) {
+            if ((line % CANCELLATION_CHECK_INTERVAL) == 0 && token.isCancellationRequested()) {
+                throw new CancellationException();
+            }
+            int lineNumber = line;
+            extractor.extractSymbols(text.getLine(line), (name, kind, startColumn, endColumn) ->
+                    result.add(new Symbol(name, kind, document, lineNumber, startColumn, endColumn)));
+        }
+        return result;
+    }
+
+    /**
+     * Fuzzy match score of the specified name (0 if the name does not contain the characters
+     * of the query in order). Matches at word starts (including camel case humps), consecutive
+     * matches, matching case and prefixes score higher.
+     * @param chars characters of the name
+     * @param start index of the first character of the name
+     * @param length length of the name
+     * @param query query
+     * @return score of the name
+     */
+    static int score(char[] chars, int start, int length, String query) {
+        if (query.length() > length) return 0;
+        int score = score(chars, start, length, query, false);
+        if (score == 0) return 0;
+        score = Math.max(score, score(chars, start, length, query, true));
+        if (isPrefix(chars, start, query)) {
+            score += length == query.length() ? 20 : 10;
+        }
+        return score;
+    }
+
+    /**
+     * @return upper bound of {@link #score(char[], int, int, String)} for the specified query
+     */
+    private static int maxScore(String query) {
+        return 12 * query.length() + 20;
+    }
+
+    /**
+     * Scores a greedy match of the query characters, optionally preferring word starts.
+     */
+    private static int score(char[] chars, int start, int length, String query, boolean preferWordStarts) {
+        int score = 0;
+        int end = start + length;
+        int previousMatch = -2;
+        int next = start;
+        for (int q = 0; q < query.length(); q++) {
+            char c = query.charAt(q);
+            char lowerCase = toLowerCase(c);
+            int match = -1;
+            if (preferWordStarts) {
+                for (int i = next; i < end; i++) {
+                    if (toLowerCase(chars[i]) == lowerCase && isWordStart(chars, start, i)) {
+                        match = i;
+                        break;
+                    }
+                }
+            }
+            if (match < 0) {
+                for (int i = next; i < end; i++) {
+                    if (toLowerCase(chars[i]) == lowerCase) {
+                        match = i;
+                        break;
+                    }
+                }
+            }
+            if (match < 0) return 0;
+
+            score += 1;
+            if (match == previousMatch + 1) score += 4;
+            if (isWordStart(chars, start, match)) score += 6;
+            if (chars[match] == c) score += 1;
+            previousMatch = match;
+            next = match + 1;
+        }
+        return score;
+    }
+
+    private static boolean isPrefix(char[] chars, int start, String query) {
+        for (int q = 0; q < query.length(); q++) {
+            if (toLowerCase(chars[start + q]) != toLowerCase(query.charAt(q))) return false;
+        }
+        return true;
+    }
+
+    private static char toLowerCase(char c) {
+        if (c < 128) return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+        return Character.toLowerCase(c);
+    }
+
+    private static boolean isWordStart(char[] chars, int start, int index) {
+        if (index == start) return true;
+        char c = chars[index];
+        char previous = chars[index - 1];
+        return !Character.isLetterOrDigit(previous) && Character.isLetterOrDigit(c)
+                || Character.isUpperCase(c) && Character.isLowerCase(previous)
+                || Character.isDigit(c) && !Character.isDigit(previous);
+    }
+
+    /**
+     * Bit mask of the characters of the specified text (letters and digits have their own
+     * bit, other characters share the remaining bits).
+     */
+    static long mask(CharSequence text) {
+        long mask = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = toLowerCase(text.charAt(i));
+            int bit;
+            if (c >= 'a' && c <= 'z') bit = c - 'a';
+            else if (c >= '0' && c <= '9') bit = 26 + c - '0';
+            else bit = 36 + c % 28;
+            mask |= 1L << bit;
+        }
+        return mask;
+    }
+
+    private static int countLineBreaks(String text) {
+        int count = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') count++;
+        }
+        return count;
+    }
+
+    /**
+     * Symbols of a document. Symbol {@code s} occupies {@code symbols[s * SYMBOL_SIZE]} to
+     * {@code symbols[(s + 1) * SYMBOL_SIZE - 1]}, the symbols of line {@code l} (0-based) are
+     * {@code lineStarts[l]} to {@code lineStarts[l + 1] - 1}.
+     */
+    private final class DocumentSymbols implements Consumer<DocumentChange>, InvalidationListener {
+
+        final Document document;
+        private SymbolExtractor extractor;
+        int[] symbols = new int[16 * SYMBOL_SIZE];
+        int symbolCount;
+        int[] lineStarts = new int[16];
+        int lineCount;
+        // lines that need to be extracted
+        private final DirtyLineRanges dirtyLines = new DirtyLineRanges();
+
+        DocumentSymbols(Document document) {
+            this.document = document;
+        }
+
+        @Override
+        public void invalidated(Observable observable) {
+            refresh();
+        }
+
+        /**
+         * Looks up the extractor of the document language and marks all lines dirty.
+         */
+        void refresh() {
+            clear();
+            String language = document.getLanguage();
+            extractor = language == null ? null : extractors.get(language);
+            if (extractor != null) reset();
+        }
+
+        @Override
+        public void accept(DocumentChange change) {
+            if (extractor == null) return;
+            int first = change.start.lineNumber - 1;
+            int last = change.end.lineNumber - 1;
+            if (change.flush || last >= lineCount) {
+                reset();
+                return;
+            }
+
+            // remove the symbols of the replaced lines
+            int from = lineStarts[first];
+            int to = lineStarts[last + 1];
+            int removed = to - from;
+            release(from, to);
+            System.arraycopy(symbols, to * SYMBOL_SIZE, symbols, from * SYMBOL_SIZE,
+                    (symbolCount - to) * SYMBOL_SIZE);
+            symbolCount -= removed;
+
+            // replace the lines with the (empty) inserted lines
+            int insertedLines = countLineBreaks(change.text) + 1;
+            int delta = insertedLines - (last - first + 1);
+            int newLineCount = lineCount + delta;
+            if (newLineCount + 1 > lineStarts.length) {
+                lineStarts = Arrays.copyOf(lineStarts,
+                        Math.max(newLineCount + 1, lineStarts.length + (lineStarts.length >> 1)));
+            }
+            System.arraycopy(lineStarts, last + 1, lineStarts, last + 1 + delta, lineCount - last);
+            Arrays.fill(lineStarts, first, first + insertedLines, from);
+            if (removed > 0) {
+                for (int line = first + insertedLines; line <= newLineCount; line++) {
+                    lineStarts[line] -= removed;
+                }
+            }
+            lineCount = newLineCount;
+            dirtyLines.applyChange(first, last, insertedLines);
+        }
+
+        /**
+         * Marks all lines of the document dirty.
+         */
+        private void reset() {
+            clear();
+            lineCount = document.getLineCount();
+            if (lineStarts.length < lineCount + 1) lineStarts = new int[lineCount + 1];
+            Arrays.fill(lineStarts, 0, lineCount + 1, 0);
+            dirtyLines.set(0, lineCount);
+        }
+
+        /**
+         * Removes all symbols.
+         */
+        void clear() {
+            release(0, symbolCount);
+            symbolCount = 0;
+            lineCount = 0;
+            lineStarts[0] = 0;
+            dirtyLines.clear();
+        }
+
+        /**
+         * Extracts the symbols of the dirty lines and replaces their previous symbols.
+         */
+        void update() {
+            for (int r = 0; r < dirtyLines.getRangeCount(); r++) {
+                int start = dirtyLines.getStart(r);
+                int end = Math.min(dirtyLines.getEnd(r), lineCount);
+                if (start < end) update(start, end);
+            }
+            dirtyLines.clear();
+        }
+
+        /**
+         * Extracts the symbols of the lines {@code [start, end)} and replaces their previous symbols.
+         */
+        private void update(int start, int end) {
+            int from = lineStarts[start];
+            int to = lineStarts[end];
+            TextBuffer text = document.getTextBuffer();
+            collector.size = 0;
+            for (int line = start; line < end; line++) {
+                lineStarts[line] = from + collector.size / SYMBOL_SIZE;
+                extractor.extractSymbols(text.getLine(line + 1), collector);
+            }
+            // names are released after the new symbols acquired them (ids stay the same)
+            release(from, to);
+
+            int added = collector.size / SYMBOL_SIZE;
+            int diff = added - (to - from);
+            if ((symbolCount + diff) * SYMBOL_SIZE > symbols.length) {
+                symbols = Arrays.copyOf(symbols,
+                        Math.max((symbolCount + diff) * SYMBOL_SIZE, symbols.length + (symbols.length >> 1)));
+            }
+            System.arraycopy(symbols, to * SYMBOL_SIZE, symbols, (from + added) * SYMBOL_SIZE,
+                    (symbolCount - to) * SYMBOL_SIZE);
+            System.arraycopy(collector.values, 0, symbols, from * SYMBOL_SIZE, collector.size);
+            symbolCount += diff;
+            if (diff != 0) {
+                for (int line = end; line <= lineCount; line++) {
+                    lineStarts[line] += diff;
+                }
+            }
+        }
+
+        private void release(int from, int to) {
+            for (int s = from; s < to; s++) {
+                names.release(symbols[s * SYMBOL_SIZE]);
+            }
+        }
+
+        /**
+         * @return line (0-based) of the specified symbol
+         */
+        int lineOf(int symbol) {
+            // last line that starts at or before the symbol
+            int low = 0;
+            int high = lineCount - 1;
+            while (low < high) {
+                int mid = (low + high + 1) >>> 1;
+                if (lineStarts[mid] <= symbol) low = mid;
+                else high = mid - 1;
+            }
+            return low;
+        }
+
+        Symbol toSymbol(int symbol, int line) {
+            int i = symbol * SYMBOL_SIZE;
+            return new Symbol(names.names[symbols[i]], KINDS[symbols[i + 1]], document, line + 1,
+                    symbols[i + 2], symbols[i + 3]);
+        }
+    }
+
+    /**
+     * Collects the symbols of lines in packed form.
+     */
+    private final class LineCollector implements SymbolExtractor.Sink {
+
+        int[] values = new int[16 * SYMBOL_SIZE];
+        int size;
+
+        @Override
+        public void accept(String name, Symbol.Kind kind, int startColumn, int endColumn) {
+            if (size + SYMBOL_SIZE > values.length) values = Arrays.copyOf(values, values.length * 2);
+            values[size++] = names.acquire(name);
+            values[size++] = kind.ordinal();
+            values[size++] = startColumn;
+            values[size++] = endColumn;
+        }
+    }
+
+    /**
+     * Reference counted symbol names. The characters of all names are stored in one array.
+     * Ids of unused names are reused.
+     */
+    private static final class NameTable {
+
+        private final Map<String, Integer> ids = new HashMap<>();
+        String[] names = new String[64];
+        long[] masks = new long[64];
+        int[] referenceCounts = new int[64];
+        // name id is chars[starts[id]] to chars[starts[id] + lengths[id] - 1]
+        char[] chars = new char[1024];
+        int[] starts = new int[64];
+        int[] lengths = new int[64];
+        private int charCount;
+        // characters of unused names (the array is compacted if more than half is unused)
+        private int unusedChars;
+        // ids are in [0, size)
+        int size;
+        private int[] freeIds = new int[16];
+        private int freeCount;
+        // incremented if ids are assigned to other names
+        int generation;
+
+        int acquire(String name) {
+            Integer id = ids.get(name);
+            if (id != null) {
+                referenceCounts[id]++;
+                return id;
+            }
+            int newId;
+            if (freeCount > 0) {
+                newId = freeIds[--freeCount];
+            } else {
+                if (size == names.length) {
+                    names = Arrays.copyOf(names, size * 2);
+                    masks = Arrays.copyOf(masks, size * 2);
+                    referenceCounts = Arrays.copyOf(referenceCounts, size * 2);
+                    starts = Arrays.copyOf(starts, size * 2);
+                    lengths = Arrays.copyOf(lengths, size * 2);
+                }
+                newId = size++;
+            }
+            if (charCount + name.length() > chars.length) {
+                chars = Arrays.copyOf(chars, Math.max(charCount + name.length(), chars.length * 2));
+            }
+            name.getChars(0, name.length(), chars, charCount);
+            starts[newId] = charCount;
+            lengths[newId] = name.length();
+            charCount += name.length();
+            names[newId] = name;
+            masks[newId] = mask(name);
+            referenceCounts[newId] = 1;
+            ids.put(name, newId);
+            generation++;
+            return newId;
+        }
+
+        void release(int id) {
+            if (--referenceCounts[id] > 0) return;
+            ids.remove(names[id]);
+            names[id] = null;
+            unusedChars += lengths[id];
+            lengths[id] = 0;
+            if (freeCount == freeIds.length) freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+            freeIds[freeCount++] = id;
+            generation++;
+            if (unusedChars > chars.length / 2) compact();
+        }
+
+        private void compact() {
+            char[] compacted = new char[Math.max(1024, (charCount - unusedChars) * 2)];
+            int count = 0;
+            for (int id = 0; id < size; id++) {
+                if (referenceCounts[id] == 0) continue;
+                System.arraycopy(chars, starts[id], compacted, count, lengths[id]);
+                starts[id] = count;
+                count += lengths[id];
+            }
+            chars = compacted;
+            charCount = count;
+            unusedChars = 0;
+        }
+    }
+}
@@ -58,7 +58,7 @@ public class SystemClipboardWrapper {
 	 * @param obj cut or copied text object.
 	 */
 	public void handleCopyCutKeyEvent(KeyEvent event, Object obj) {
-		if (event.getEventType().getName().equals("KEY_PRESSED") && KEY_CODE_CTRL_X.match(event) || (KEY_CODE_CTRL_C.match(event))) {
+		if (isCopyOrCutEvent(event)) {
 			String selectedText = String.valueOf(obj);
 			if (selectedText.isEmpty()) {
 				event.consume();
@@ -72,6 +72,16 @@ public class SystemClipboardWrapper {
 		}
 	}
 
+	/**
+	 * Checks whether the specified event is a 'Ctrl x' or 'Ctrl c' key press.
+	 * @param event key event
+	 * @return {@code true} if the event triggers copy or cut; {@code false} otherwise
+	 */
+	public boolean isCopyOrCutEvent(KeyEvent event) {
+		return event.getEventType() == KeyEvent.KEY_PRESSED
+				&& (KEY_CODE_CTRL_X.match(event) || KEY_CODE_CTRL_C.match(event));
+	}
+
 	/**
 	 * Used to check if the clipboard has a string/
 	 * @return string content of the clipboard.
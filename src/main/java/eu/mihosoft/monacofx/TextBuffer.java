@@ -0,0 +1,479 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+import java.nio.CharBuffer;
+import java.util.function.Consumer;
+
+/**
+ * Immutable text buffer implemented as a balanced (AVL) rope. Text is stored in
+ * leaves of bounded size, inner nodes cache the length and the number of line breaks
+ * of their subtree. This allows to insert, delete and locate lines in {@code O(log n)}
+ * and to extract substrings without materializing the whole text.
+ *
+ * <p>Edit operations return a new buffer that shares all unmodified nodes with the
+ * original one. Instances are therefore cheap to keep and safe to use from any thread.</p>
+ *
+ * <p>Line numbers and columns are 1-based (as in Monaco), offsets are 0-based.
+ * Line breaks are {@code \n} and {@code \r\n}.</p>
+ */
+public final class TextBuffer implements CharSequence {
+
+    /** maximum number of chars per leaf */
+    private static final int MAX_LEAF_SIZE = 1024;
+
+    public static final TextBuffer EMPTY = new TextBuffer(null);
+
+    private final Node root;
+
+    private TextBuffer(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * Creates a new buffer with the specified content.
+     * @param text content
+     * @return new buffer
+     */
+    public static TextBuffer of(CharSequence text) {
+        if (text == null || text.length() == 0) return EMPTY;
+        return new TextBuffer(build(text, 0, text.length()));
+    }
+
+    @Override
+    public int length() {
+        return length(root);
+    }
+
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    @Override
+    public char charAt(int index) {
+        checkIndex(index, length());
+        Node n = root;
+        while (!n.isLeaf()) {
+            if (index < n.left.length) {
+                n = n.left;
+            } else {
+                index -= n.left.length;
+                n = n.right;
+            }
+        }
+        return n.text.charAt(index);
+    }
+
+    /**
+     * Returns a buffer that contains the specified range of this buffer. The returned
+     * buffer shares the nodes of this buffer.
+     */
+    @Override
+    public TextBuffer subSequence(int start, int end) {
+        checkRange(start, end, length());
+        if (start == end) return EMPTY;
+        Node n = split(root, end)[0];
+        return new TextBuffer(split(n, start)[1]);
+    }
+
+    /**
+     * Returns the specified range as string.
+     * @param start start offset (inclusive)
+     * @param end end offset (exclusive)
+     * @return the requested substring
+     */
+    public String substring(int start, int end) {
+        checkRange(start, end, length());
+        StringBuilder sb = new StringBuilder(end - start);
+        forEachChunk(start, end, sb::append);
+        return sb.toString();
+    }
+
+    /**
+     * Inserts the specified text.
+     * @param offset insertion offset
+     * @param text text to insert
+     * @return buffer containing the inserted text
+     */
+    public TextBuffer insert(int offset, CharSequence text) {
+        return replace(offset, offset, text);
+    }
+
+    /**
+     * Deletes the specified range.
+     * @param start start offset (inclusive)
+     * @param end end offset (exclusive)
+     * @return buffer without the specified range
+     */
+    public TextBuffer delete(int start, int end) {
+        return replace(start, end, "");
+    }
+
+    /**
+     * Replaces the specified range with the specified text.
+     * @param start start offset (inclusive)
+     * @param end end offset (exclusive)
+     * @param text replacement text
+     * @return buffer with the replaced range
+     */
+    public TextBuffer replace(int start, int end, CharSequence text) {
+        checkRange(start, end, length());
+        boolean hasText = text != null && text.length() > 0;
+        if (start == end && !hasText) return this;
+        Node[] head = split(root, start);
+        Node tail = split(head[1], end - start)[1];
+        Node middle = hasText ? build(text, 0, text.length()) : null;
+        return new TextBuffer(join(join(head[0], middle), tail));
+    }
+
+    /**
+     * Visits the content of the specified range chunk by chunk without copying it.
+     * @param start start offset (inclusive)
+     * @param end end offset (exclusive)
+     * @param consumer chunk consumer
+     */
+    public void forEachChunk(int start, int end, Consumer<CharSequence> consumer) {
+        checkRange(start, end, length());
+        if (start < end) forEachChunk(root, start, end, consumer);
+    }
+
+    private static void forEachChunk(Node n, int start, int end, Consumer<CharSequence> consumer) {
+        if (n.isLeaf()) {
+            consumer.accept(CharBuffer.wrap(n.text, start, end));
+            return;
+        }
+        int leftLength = n.left.length;
+        if (start < leftLength) {
+            forEachChunk(n.left, start, Math.min(end, leftLength), consumer);
+        }
+        if (end > leftLength) {
+            forEachChunk(n.right, Math.max(0, start - leftLength), end - leftLength, consumer);
+        }
+    }
+
+    /**
+     * @return number of lines (at least one)
+     */
+    public int getLineCount() {
+        return lineBreaks(root) + 1;
+    }
+
+    /**
+     * Returns the offset of the first character of the specified line.
+     * @param lineNumber line number (1-based)
+     * @return offset of the line
+     */
+    public int getLineStart(int lineNumber) {
+        checkLineNumber(lineNumber);
+        return lineNumber == 1 ? 0 : lineBreakOffset(lineNumber - 1) + 1;
+    }
+
+    /**
+     * Returns the length of the specified line excluding its line break.
+     * @param lineNumber line number (1-based)
+     * @return length of the line
+     */
+    public int getLineLength(int lineNumber) {
+        return getLineEnd(lineNumber) - getLineStart(lineNumber);
+    }
+
+    /**
+     * Returns the content of the specified line excluding its line break.
+     * @param lineNumber line number (1-based)
+     * @return line content
+     */
+    public String getLine(int lineNumber) {
+        return substring(getLineStart(lineNumber), getLineEnd(lineNumber));
+    }
+
+    /**
+     * Returns the line number that contains the specified offset.
+     * @param offset offset (0 to {@link #length()})
+     * @return line number (1-based)
+     */
+    public int getLineNumber(int offset) {
+        checkRange(offset, offset, length());
+        return lineBreaksBefore(offset) + 1;
+    }
+
+    /**
+     * Converts the specified position to an offset. Positions outside of the text are
+     * clamped to the nearest valid position (as done by Monaco's {@code getOffsetAt}).
+     * @param position position to convert
+     * @return offset
+     */
+    public int offsetAt(Position position) {
+        int lineNumber = Math.max(1, Math.min(position.lineNumber, getLineCount()));
+        int lineStart = getLineStart(lineNumber);
+        int lineLength = getLineEnd(lineNumber) - lineStart;
+        int column = Math.max(1, Math.min(position.column, lineLength + 1));
+        return lineStart + column - 1;
+    }
+
+    /**
+     * Converts the specified offset to a position.
+     * @param offset offset (clamped to 0..{@link #length()})
+     * @return position
+     */
+    public Position positionAt(int offset) {
+        offset = Math.max(0, Math.min(offset, length()));
+        int lineNumber = lineBreaksBefore(offset) + 1;
+        int lineStart = getLineStart(lineNumber);
+        int lineLength = getLineEnd(lineNumber) - lineStart;
+        return new Position(lineNumber, Math.min(offset - lineStart, lineLength) + 1);
+    }
+
+    @Override
+    public String toString() {
+        return substring(0, length());
+    }
+
+    private int getLineEnd(int lineNumber) {
+        checkLineNumber(lineNumber);
+        if (lineNumber == getLineCount()) return length();
+        int lineBreak = lineBreakOffset(lineNumber);
+        if (lineBreak > 0 && charAt(lineBreak - 1) == '\r') return lineBreak - 1;
+        return lineBreak;
+    }
+
+    /**
+     * Returns the offset of the n-th {@code \n} (1-based).
+     */
+    private int lineBreakOffset(int n) {
+        Node node = root;
+        int offset = 0;
+        while (!node.isLeaf()) {
+            if (n <= node.left.lineBreaks) {
+                node = node.left;
+            } else {
+                n -= node.left.lineBreaks;
+                offset += node.left.length;
+                node = node.right;
+            }
+        }
+        String text = node.text;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n' && --n == 0) return offset + i;
+        }
+        throw new IllegalStateException("Line break not found");
+    }
+
+    /**
+     * Returns the number of {@code \n} before the specified offset.
+     */
+    private int lineBreaksBefore(int offset) {
+        Node node = root;
+        int count = 0;
+        while (node != null && !node.isLeaf()) {
+            if (offset <= node.left.length) {
+                node = node.left;
+            } else {
+                offset -= node.left.length;
+                count += node.left.lineBreaks;
+                node = node.right;
+            }
+        }
+        if (node != null) count += countLineBreaks(node.text, 0, offset);
+        return count;
+    }
+
+    private void checkLineNumber(int lineNumber) {
+        if (lineNumber < 1 || lineNumber > getLineCount()) {
+            throw new IndexOutOfBoundsException(
+                    "Line number " + lineNumber + " out of range [1," + getLineCount() + "]");
+        }
+    }
+
+    private static void checkIndex(int index, int length) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of range [0," + length + ")");
+        }
+    }
+
+    private static void checkRange(int start, int end, int length) {
+        if (start < 0 || start > end || end > length) {
+            throw new IndexOutOfBoundsException(
+                    "Range [" + start + "," + end + ") out of range [0," + length + "]");
+        }
+    }
+
+    private static int countLineBreaks(CharSequence text, int start, int end) {
+        int count = 0;
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) == '\n') count++;
+        }
+        return count;
+    }
+
+    // -------------------------------------------------------------------------
+    // rope implementation
+    // -------------------------------------------------------------------------
+
+    private static final class Node {
+        final Node left;
+        final Node right;
+        final String text;
+        final int length;
+        final int lineBreaks;
+        final int height;
+
+        Node(String text) {
+            this.left = null;
+            this.right = null;
+            this.text = text;
+            this.length = text.length();
+            this.lineBreaks = countLineBreaks(text, 0, text.length());
+            this.height = 1;
+        }
+
+        Node(Node left, Node right) {
+            this.left = left;
+            this.right = right;
+            this.text = null;
+            this.length = left.length + right.length;
+            this.lineBreaks = left.lineBreaks + right.lineBreaks;
+            this.height = Math.max(left.height, right.height) + 1;
+        }
+
+        boolean isLeaf() {
+            return text != null;
+        }
+    }
+
+    private static int length(Node n) {
+        return n == null ? 0 : n.length;
+    }
+
+    private static int lineBreaks(Node n) {
+        return n == null ? 0 : n.lineBreaks;
+    }
+
+    private static int height(Node n) {
+        return n == null ? 0 : n.height;
+    }
+
+    private static Node build(CharSequence text, int start, int end) {
+        int length = end - start;
+        if (length <= MAX_LEAF_SIZE) {
+            return new Node(text.subSequence(start, end).toString());
+        }
+        int numLeaves = (length + MAX_LEAF_SIZE - 1) / MAX_LEAF_SIZE;
+        int mid = start + (numLeaves / 2) * MAX_LEAF_SIZE;
+        return new Node(build(text, start, mid), build(text, mid, end));
+    }
+
+    /**
+     * Splits the specified tree at the specified offset.
+     * @return left and right part (both may be {@code null})
+     */
+    private static Node[] split(Node n, int offset) {
+        if (n == null) return new Node[]{null, null};
+        if (offset == 0) return new Node[]{null, n};
+        if (offset == n.length) return new Node[]{n, null};
+        if (n.isLeaf()) {
+            return new Node[]{new Node(n.text.substring(0, offset)), new Node(n.text.substring(offset))};
+        }
+        if (offset <= n.left.length) {
+            Node[] parts = split(n.left, offset);
+            return new Node[]{parts[0], concat(parts[1], n.right)};
+        } else {
+            Node[] parts = split(n.right, offset - n.left.length);
+            return new Node[]{concat(n.left, parts[0]), parts[1]};
+        }
+    }
+
+    /**
+     * Concatenates the specified trees and merges the leaves at the seam while they fit into
+     * one leaf (edits would fragment the rope into tiny leaves otherwise).
+     */
+    private static Node join(Node a, Node b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        Node first = firstLeaf(b);
+        if (lastLeaf(a).length + first.length <= MAX_LEAF_SIZE) {
+            return join(appendToLastLeaf(a, first.text), removeFirstLeaf(b));
+        }
+        return concat(a, b);
+    }
+
+    /**
+     * Concatenates the specified trees and keeps the result balanced (AVL join).
+     */
+    private static Node concat(Node a, Node b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        int diff = a.height - b.height;
+        if (diff > 1) {
+            return rebalance(a.left, concat(a.right, b));
+        } else if (diff < -1) {
+            return rebalance(concat(a, b.left), b.right);
+        }
+        return new Node(a, b);
+    }
+
+    private static Node firstLeaf(Node n) {
+        while (!n.isLeaf()) n = n.left;
+        return n;
+    }
+
+    private static Node lastLeaf(Node n) {
+        while (!n.isLeaf()) n = n.right;
+        return n;
+    }
+
+    /**
+     * @return tree with the text appended to its last leaf (the height does not change)
+     */
+    private static Node appendToLastLeaf(Node n, String text) {
+        if (n.isLeaf()) return new Node(n.text.concat(text));
+        return new Node(n.left, appendToLastLeaf(n.right, text));
+    }
+
+    /**
+     * @return tree without its first leaf (may be {@code null})
+     */
+    private static Node removeFirstLeaf(Node n) {
+        if (n.isLeaf()) return null;
+        if (n.left.isLeaf()) return n.right;
+        return concat(removeFirstLeaf(n.left), n.right);
+    }
+
+    private static Node rebalance(Node left, Node right) {
+        if (left == null) return right;
+        if (right == null) return left;
+        int balance = left.height - right.height;
+        if (balance > 1) {
+            if (height(left.left) >= height(left.right)) {
+                return new Node(left.left, new Node(left.right, right));
+            }
+            return new Node(new Node(left.left, left.right.left), new Node(left.right.right, right));
+        } else if (balance < -1) {
+            if (height(right.right) >= height(right.left)) {
+                return new Node(new Node(left, right.left), right.right);
+            }
+            return new Node(new Node(left, right.left.left), new Node(right.left.right, right.right));
+        }
+        return new Node(left, right);
+    }
+}
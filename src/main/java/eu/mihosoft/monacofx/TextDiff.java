@@ -0,0 +1,231 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Computes a small set of edits that transforms one text into another.
+ *
+ * <p>Common prefix and suffix are stripped first. The remaining text is compared line by
+ * line with Myers' {@code O(ND)} algorithm and each differing hunk is narrowed down to
+ * the changed characters. If the texts differ in too many lines, the remaining range is
+ * replaced as a whole.</p>
+ */
+final class TextDiff {
+
+    /** maximum edit distance (in lines) computed by the line diff */
+    private static final int MAX_EDIT_DISTANCE = 1024;
+
+    private TextDiff() {
+        throw new AssertionError("Don't instantiate me!");
+    }
+
+    /**
+     * Computes the edits that transform {@code oldText} into {@code newText}. The edits
+     * are sorted by offset and refer to {@code oldText}.
+     * @param oldText original text
+     * @param newText new text
+     * @return edits (empty if both texts are equal)
+     */
+    static List<TextEdit> compute(String oldText, String newText) {
+        List<TextEdit> edits = new ArrayList<>();
+        diffRange(oldText, 0, oldText.length(), newText, 0, newText.length(), true, edits);
+        return edits;
+    }
+
+    private static void diffRange(String a, int aStart, int aEnd, String b, int bStart, int bEnd,
+                                  boolean lineDiff, List<TextEdit> edits) {
+
+        // strip common prefix and suffix
+        int prefix = 0;
+        int maxPrefix = Math.min(aEnd - aStart, bEnd - bStart);
+        while (prefix < maxPrefix && a.charAt(aStart + prefix) == b.charAt(bStart + prefix)) prefix++;
+        if (prefix < maxPrefix || aEnd - aStart != bEnd - bStart) {
+            // don't split \r\n or surrogate pairs
+            while (prefix > 0 && isPairStart(a.charAt(aStart + prefix - 1))) prefix--;
+        }
+        aStart += prefix;
+        bStart += prefix;
+
+        int suffix = 0;
+        int maxSuffix = Math.min(aEnd - aStart, bEnd - bStart);
+        while (suffix < maxSuffix && a.charAt(aEnd - suffix - 1) == b.charAt(bEnd - suffix - 1)) suffix++;
+        while (suffix > 0 && aEnd - suffix > aStart && isPairStart(a.charAt(aEnd - suffix - 1))) suffix--;
+        aEnd -= suffix;
+        bEnd -= suffix;
+
+        if (aStart == aEnd && bStart == bEnd) return;
+
+        if (!lineDiff || aStart == aEnd || bStart == bEnd) {
+            edits.add(new TextEdit(aStart, aEnd - aStart, b.substring(bStart, bEnd)));
+            return;
+        }
+
+        int[] aLines = lineOffsets(a, aStart, aEnd);
+        int[] bLines = lineOffsets(b, bStart, bEnd);
+        int[][] matches = matchLines(a, aLines, b, bLines);
+
+        if (matches == null) {
+            edits.add(new TextEdit(aStart, aEnd - aStart, b.substring(bStart, bEnd)));
+            return;
+        }
+
+        // every gap between matching lines is a hunk that is narrowed down char by char
+        int aLine = 0;
+        int bLine = 0;
+        for (int i = 0; i <= matches[0].length; i++) {
+            int aMatch = i < matches[0].length ? matches[0][i] : aLines.length - 1;
+            int bMatch = i < matches[1].length ? matches[1][i] : bLines.length - 1;
+            if (aMatch > aLine || bMatch > bLine) {
+                diffRange(a, aLines[aLine], aLines[aMatch], b, bLines[bLine], bLines[bMatch], false, edits);
+            }
+            aLine = aMatch + 1;
+            bLine = bMatch + 1;
+        }
+    }
+
+    private static boolean isPairStart(char c) {
+        return c == '\r' || Character.isHighSurrogate(c);
+    }
+
+    /**
+     * Returns the start offsets of the lines in the specified range followed by the end of the range.
+     * Line breaks belong to the line they terminate.
+     */
+    private static int[] lineOffsets(String text, int start, int end) {
+        int[] offsets = new int[16];
+        int count = 0;
+        offsets[count++] = start;
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) == '\n' && i + 1 < end) {
+                if (count == offsets.length) offsets = Arrays.copyOf(offsets, count * 2);
+                offsets[count++] = i + 1;
+            }
+        }
+        if (count == offsets.length) offsets = Arrays.copyOf(offsets, count + 1);
+        offsets[count++] = end;
+        return Arrays.copyOf(offsets, count);
+    }
+
+    /**
+     * Myers' diff on lines.
+     * @return indices of matching lines in a ({@code [0]}) and b ({@code [1]}) or {@code null}
+     *         if the edit distance exceeds {@link #MAX_EDIT_DISTANCE}
+     */
+    private static int[][] matchLines(String a, int[] aLines, String b, int[] bLines) {
+        int n = aLines.length - 1;
+        int m = bLines.length - 1;
+        int[] aHashes = lineHashes(a, aLines);
+        int[] bHashes = lineHashes(b, bLines);
+
+        int max = n + m;
+        int maxD = Math.min(max, MAX_EDIT_DISTANCE);
+        int[] v = new int[2 * max + 2];
+        List<int[]> trace = new ArrayList<>();
+        int distance = -1;
+
+        outer:
+        for (int d = 0; d <= maxD; d++) {
+            for (int k = -d; k <= d; k += 2) {
+                int x;
+                if (k == -d || (k != d && v[max + k - 1] < v[max + k + 1])) {
+                    x = v[max + k + 1];
+                } else {
+                    x = v[max + k - 1] + 1;
+                }
+                int y = x - k;
+                while (x < n && y < m && lineEquals(a, aLines, aHashes, x, b, bLines, bHashes, y)) {
+                    x++;
+                    y++;
+                }
+                v[max + k] = x;
+                if (x >= n && y >= m) {
+                    trace.add(Arrays.copyOfRange(v, max - d, max + d + 1));
+                    distance = d;
+                    break outer;
+                }
+            }
+            trace.add(Arrays.copyOfRange(v, max - d, max + d + 1));
+        }
+
+        if (distance < 0) return null;
+
+        // backtrack and collect the diagonals (matching lines)
+        int[] aMatches = new int[Math.min(n, m)];
+        int[] bMatches = new int[aMatches.length];
+        int count = 0;
+        int x = n;
+        int y = m;
+        for (int d = distance; d > 0; d--) {
+            int[] prev = trace.get(d - 1); // index k + (d - 1)
+            int k = x - y;
+            int prevK;
+            if (k == -d || (k != d && prev[k - 1 + d - 1] < prev[k + 1 + d - 1])) {
+                prevK = k + 1;
+            } else {
+                prevK = k - 1;
+            }
+            int prevX = prev[prevK + d - 1];
+            int prevY = prevX - prevK;
+            while (x > prevX && y > prevY) {
+                aMatches[count] = --x;
+                bMatches[count++] = --y;
+            }
+            x = prevX;
+            y = prevY;
+        }
+        while (x > 0 && y > 0) {
+            aMatches[count] = --x;
+            bMatches[count++] = --y;
+        }
+
+        int[][] result = new int[2][count];
+        for (int i = 0; i < count; i++) {
+            result[0][i] = aMatches[count - 1 - i];
+            result[1][i] = bMatches[count - 1 - i];
+        }
+        return result;
+    }
+
+    private static int[] lineHashes(String text, int[] lines) {
+        int[] hashes = new int[lines.length - 1];
+        for (int i = 0; i < hashes.length; i++) {
+            int h = 0;
+            for (int j = lines[i]; j < lines[i + 1]; j++) h = 31 * h + text.charAt(j);
+            hashes[i] = h;
+        }
+        return hashes;
+    }
+
+    private static boolean lineEquals(String a, int[] aLines, int[] aHashes, int i,
+                                      String b, int[] bLines, int[] bHashes, int j) {
+        int length = aLines[i + 1] - aLines[i];
+        return aHashes[i] == bHashes[j]
+                && length == bLines[j + 1] - bLines[j]
+                && a.regionMatches(aLines[i], b, bLines[j], length);
+    }
+}
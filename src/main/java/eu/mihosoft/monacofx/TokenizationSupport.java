@@ -0,0 +1,197 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Connects a {@link TokensProvider} to monaco's tokenization (see {@code registerLanguage()}
+ * in index.html). States and scopes are interned as ints. Monaco requests the tokens of a line
+ * together with a hint of its line number. If the hint matches the current document, a batch
+ * of subsequent lines is tokenized at once and cached on the js side. A batch ends where the
+ * end state of a line is equal to its cached end state from the last tokenization (monaco stops
+ * there as well). Accessed from the FX application thread only.
+ *
+ * @param <S> state type
+ */
+final class TokenizationSupport<S> {
+
+    // maximum number of lines per batch
+    private static final int MAX_BATCH_SIZE = 256;
+    // end state of lines that have not been tokenized since they changed
+    private static final int UNKNOWN = -1;
+
+    private final TokensProvider<S> provider;
+    private final Editor editor;
+
+    private final Map<S, Integer> stateIds = new HashMap<>();
+    private final List<S> states = new ArrayList<>();
+    private final Map<String, Integer> scopeIds = new HashMap<>();
+    private final List<String> scopes = new ArrayList<>();
+    // number of scopes known by js
+    private int sentScopes;
+
+    // cached end states per document
+    private final Map<Document, LineStateArray> endStates = new WeakHashMap<>();
+
+    private final JsonWriter json = new JsonWriter();
+    // packed (startIndex, scopeId) pairs of the current line
+    private int[] lineTokens = new int[64];
+    private int lineTokensSize;
+    private final TokensProvider.TokenConsumer consumer = (startIndex, scope) -> {
+        if (lineTokensSize + 2 > lineTokens.length) {
+            lineTokens = Arrays.copyOf(lineTokens, lineTokens.length * 2);
+        }
+        lineTokens[lineTokensSize++] = startIndex;
+        lineTokens[lineTokensSize++] = scopeId(scope);
+    };
+
+    TokenizationSupport(TokensProvider<S> provider, Editor editor) {
+        this.provider = provider;
+        this.editor = editor;
+    }
+
+    /**
+     * @return id of the initial state
+     */
+    int getInitialStateId() {
+        return stateId(provider.getInitialState());
+    }
+
+    /**
+     * Tokenizes the requested line and, if possible, subsequent lines. Called by monaco with
+     * {@code [lineNumberHint, stateId, line]}. Returns
+     * {@code {"scopes": [new scopes], "start": lineNumber or -1, "lines": [text],
+     * "tokens": [(endStateId, numTokens, (startIndex, scopeId)*)*]}}
+     * where {@code start} is -1 if only the requested line has been tokenized.
+     */
+    Object tokenize(Object[] args) {
+        int lineHint = ((Number) args[0]).intValue();
+        S state = states.get(((Number) args[1]).intValue());
+        String line = String.valueOf(args[2]);
+
+        Document document = editor.getDocument();
+        LineStateArray cache = document == null ? null : getEndStates(document);
+        boolean batch = cache != null && lineHint >= 1 && lineHint <= document.getLineCount()
+                && line.equals(document.getLine(lineHint));
+
+        json.reset().beginObject().name("scopes").beginArray();
+        int scopesBefore = scopes.size();
+        StringBuilder tokens = new StringBuilder();
+        List<String> lines = new ArrayList<>();
+
+        if (!batch) {
+            state = tokenizeLine(line, state, tokens);
+            lines.add(line);
+        } else {
+            int end = Math.min(document.getLineCount(), lineHint + MAX_BATCH_SIZE - 1);
+            for (int lineNumber = lineHint; lineNumber <= end; lineNumber++) {
+                String text = lineNumber == lineHint ? line : document.getLine(lineNumber);
+                state = tokenizeLine(text, state, tokens);
+                lines.add(text);
+                int endStateId = stateId(state);
+                boolean converged = cache.get(lineNumber - 1) == endStateId;
+                cache.set(lineNumber - 1, endStateId);
+                if (converged) break;
+            }
+        }
+
+        // scopes of this batch are interned while tokenizing
+        for (int i = sentScopes; i < scopes.size(); i++) {
+            json.value(scopes.get(i));
+        }
+        sentScopes = scopes.size();
+        json.endArray()
+                .name("start").value(batch ? lineHint : -1)
+                .name("lines").beginArray();
+        for (String text : lines) {
+            json.value(text);
+        }
+        json.endArray().name("tokens").value(JsonWriter.raw("[" + tokens + "]")).endObject();
+        return json.toString();
+    }
+
+    /**
+     * Tokenizes the specified line and appends its packed tokens.
+     * @return end state
+     */
+    private S tokenizeLine(String line, S state, StringBuilder tokens) {
+        lineTokensSize = 0;
+        S endState = provider.tokenize(line, state, consumer);
+        if (tokens.length() > 0) tokens.append(',');
+        tokens.append(stateId(endState)).append(',').append(lineTokensSize / 2);
+        for (int i = 0; i < lineTokensSize; i++) {
+            tokens.append(',').append(lineTokens[i]);
+        }
+        return endState;
+    }
+
+    private LineStateArray getEndStates(Document document) {
+        LineStateArray cache = endStates.get(document);
+        if (cache == null) {
+            LineStateArray newCache = new LineStateArray();
+            newCache.reset(document.getLineCount(), UNKNOWN);
+            document.addChangeListener(change -> {
+                if (change.flush) {
+                    newCache.reset(document.getLineCount(), UNKNOWN);
+                } else {
+                    // the last changed line ends where the replaced range ended, i.e., its
+                    // previous end state is the state the next line starts with
+                    int previousEndState = newCache.get(change.end.lineNumber - 1);
+                    int insertedLines = newCache.applyChange(change, UNKNOWN);
+                    newCache.set(change.start.lineNumber - 2 + insertedLines, previousEndState);
+                }
+            });
+            endStates.put(document, newCache);
+            cache = newCache;
+        }
+        return cache;
+    }
+
+    private int stateId(S state) {
+        Integer id = stateIds.get(state);
+        if (id == null) {
+            id = states.size();
+            states.add(state);
+            stateIds.put(state, id);
+        }
+        return id;
+    }
+
+    private int scopeId(String scope) {
+        Integer id = scopeIds.get(scope);
+        if (id == null) {
+            id = scopes.size();
+            scopes.add(scope);
+            scopeIds.put(scope, id);
+        }
+        return id;
+    }
+}
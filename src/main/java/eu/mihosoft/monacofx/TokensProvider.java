@@ -0,0 +1,66 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+/**
+ * Tokenizes the lines of a document for syntax highlighting (alternative to
+ * {@link MonarchSyntaxHighlighter}). Lines are tokenized one after another, each line
+ * starting with the end state of the previous line. The editor keeps the end state of
+ * every line, so that an edit only re-tokenizes lines until the end state of a line is
+ * equal to its previous end state.
+ *
+ * States must be immutable and implement {@code equals()} and {@code hashCode()}. All
+ * distinct states are kept for the lifetime of the editor, i.e., the number of distinct
+ * states should be small (e.g. an enum or a few nesting levels).
+ *
+ * @param <S> state type
+ */
+public interface TokensProvider<S> {
+
+    /**
+     * Receives the tokens of a line.
+     */
+    @FunctionalInterface
+    interface TokenConsumer {
+        /**
+         * @param startIndex start of the token in the line (0-based, tokens in ascending order)
+         * @param scope token type, e.g., {@code "keyword"} (used by theme rules)
+         */
+        void accept(int startIndex, String scope);
+    }
+
+    /**
+     * @return state at the beginning of the document
+     */
+    S getInitialState();
+
+    /**
+     * Tokenizes the specified line. Called on the FX application thread.
+     * @param line content of the line without line break
+     * @param state state at the beginning of the line
+     * @param tokens receives the tokens of the line
+     * @return state at the end of the line
+     */
+    S tokenize(CharSequence line, S state, TokenConsumer tokens);
+}
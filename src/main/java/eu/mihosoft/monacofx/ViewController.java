@@ -23,47 +23,116 @@
  */
 package eu.mihosoft.monacofx;
 
+import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.property.SimpleIntegerProperty;
+import javafx.beans.value.ChangeListener;
 import netscape.javascript.JSObject;
 
 public final class ViewController {
 
     private final Editor editor;
     private JSObject window;
+    private CommandQueue commands;
+    // true while the scroll position reported by js is applied
+    private boolean scrollFromJS;
 
     //private final ObjectProperty<Position> cursorPositionProperty = new SimpleObjectProperty<>();
     private final IntegerProperty scrollPositionProperty = new SimpleIntegerProperty();
+    private final BooleanProperty followTailProperty = new SimpleBooleanProperty();
+    private final ChangeListener<Number> lineCountListener = (ov, oldValue, newValue) -> revealTail();
+    private final ReadOnlyObjectWrapper<CursorSelection> cursorSelectionProperty =
+            new ReadOnlyObjectWrapper<>(new CursorSelection(
+                    new Selection(new Position(1, 1), new Position(1, 1)), new Selection[0]));
 
     private JFunction scrollChangeListener;
+    private JFunction cursorSelectionListener;
+    // most recent cursor selection reported by js that has not been published yet
+    private Object[] pendingCursorSelection;
 
     public ViewController(Editor editor) {
         this.editor = editor;
+        // follow tail: reveal the last line if lines are added or the document changes
+        editor.documentProperty().addListener((ov, oldDocument, newDocument) -> {
+            if (oldDocument != null) oldDocument.numberOfLinesProperty().removeListener(lineCountListener);
+            if (newDocument != null) newDocument.numberOfLinesProperty().addListener(lineCountListener);
+            revealTail();
+        });
+        followTailProperty.addListener((ov) -> revealTail());
     }
 
     void setEditor(JSObject window, JSObject editor) {
         this.window = window;
+        this.commands = this.editor.getCommandQueue();
          // initial scroll
-        editor.call("setScrollPosition", getScrollPosition());
+        postScrollPosition();
         // scroll changes -> js
         scrollPositionProperty().addListener((ov) -> {
-            editor.call("setScrollPosition", getScrollPosition());
+            if (!scrollFromJS) postScrollPosition();
         });
-         // scroll changes <- js
+         // scroll changes <- js (the position reported by js supersedes pending scroll commands)
         scrollChangeListener = new JFunction( args -> {
-            int pos = (int) editor.call("getScrollTop");
-            setScrollPosition(pos);
+            commands.cancel(CommandQueue.Kind.SCROLL, this);
+            scrollFromJS = true;
+            try {
+                setScrollPosition(((Number) args[0]).intValue());
+            } finally {
+                scrollFromJS = false;
+            }
             return null;
         });
         window.setMember("scrollChangeListener", scrollChangeListener);
+        // cursor selection changes <- js (published once per pulse)
+        cursorSelectionListener = new JFunction( args -> {
+            pendingCursorSelection = args;
+            this.editor.getPulseCoalescer().submit(cursorSelectionProperty, this::publishCursorSelection);
+            return null;
+        });
+        window.setMember("cursorSelectionListener", cursorSelectionListener);
+        revealTail();
+    }
+
+    private void revealTail() {
+        Document document = editor.getDocument();
+        // reveal commands are merged, i.e., the last line is revealed at most once per pulse
+        if (isFollowTail() && document != null && commands != null) scrollToLine(document.getLineCount());
+    }
+
+    private void postScrollPosition() {
+        commands.post(CommandQueue.Kind.SCROLL, this, "setScrollTop", getScrollPosition());
+    }
+
+    /**
+     * Converts the pending selection reported by js, i.e.,
+     * {@code [numSelections, (selectionStartLineNumber, selectionStartColumn,
+     * positionLineNumber, positionColumn)*]} with the primary selection first.
+     */
+    private void publishCursorSelection() {
+        Object[] args = pendingCursorSelection;
+        if (args == null) return;
+        pendingCursorSelection = null;
+
+        Selection[] selections = new Selection[((Number) args[0]).intValue()];
+        for (int i = 0; i < selections.length; i++) {
+            int idx = 1 + i * 4;
+            selections[i] = new Selection(
+                    new Position(((Number) args[idx]).intValue(), ((Number) args[idx + 1]).intValue()),
+                    new Position(((Number) args[idx + 2]).intValue(), ((Number) args[idx + 3]).intValue()));
+        }
+        Selection[] secondarySelections = new Selection[selections.length - 1];
+        System.arraycopy(selections, 1, secondarySelections, 0, secondarySelections.length);
+        cursorSelectionProperty.set(new CursorSelection(selections[0], secondarySelections));
     }
 
     public void undo() {
-        window.call("undo");
+        commands.call(window, "undo");
     }
 
     public void redo() {
-        window.call("redo");
+        commands.call(window, "redo");
     }
 
     public void setScrollPosition(int posIdx) {
@@ -79,12 +148,29 @@ public final class ViewController {
 
     public void scrollToLine(int line) {
         // editor.revealLine(line);
-        editor.getJSEditor().call("revealLine", line);
+        commands.post(CommandQueue.Kind.REVEAL, this, "revealLine", line);
     }
 
     public void scrollToLineCenter(int line) {
         // editor.revealLineInCenter(15);
-        editor.getJSEditor().call("revealLineInCenter", line);
+        commands.post(CommandQueue.Kind.REVEAL, this, "revealLineInCenter", line);
+    }
+
+    /**
+     * Whether the last line of the document is kept visible, e.g., for consoles that
+     * append output (see {@link Document#append(CharSequence)}).
+     * @return follow tail property
+     */
+    public BooleanProperty followTailProperty() {
+        return followTailProperty;
+    }
+
+    public void setFollowTail(boolean followTail) {
+        followTailProperty().set(followTail);
+    }
+
+    public boolean isFollowTail() {
+        return followTailProperty().get();
     }
 
     // ObjectProperty<Position> cursorPositionProperty() {
@@ -94,4 +180,23 @@ public final class ViewController {
     public IntegerProperty scrollPositionProperty() {
         return scrollPositionProperty;
     }
+
+    /**
+     * Cursor selection of the editor. The selection {@code start} is the anchor and
+     * {@code stop} the cursor position. Updates are published at most once per pulse.
+     * @return the cursor selection property
+     */
+    public ReadOnlyObjectProperty<CursorSelection> cursorSelectionProperty() {
+        return cursorSelectionProperty.getReadOnlyProperty();
+    }
+
+    /**
+     * Returns the current cursor selection (includes changes not yet published
+     * by {@link #cursorSelectionProperty()}).
+     * @return the current cursor selection
+     */
+    public CursorSelection getCursorSelection() {
+        publishCursorSelection();
+        return cursorSelectionProperty.get();
+    }
 }
@@ -0,0 +1,269 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Index of the words (identifiers) of a {@link Document} for prefix lookups, e.g., for
+ * completion (see {@link CompletionProvider#words(int)}).
+ *
+ * <p>Words are stored in a trie keyed by lower case characters, i.e., lookups are
+ * case-insensitive and cost {@code O(prefix length + number of results)}, independent of
+ * the document size. Each node stores the case variants of the words ending there together
+ * with their number of occurrences. The index is updated from the change deltas of the
+ * document: only the words overlapping a changed range are removed and re-added.</p>
+ *
+ * <p>A word is a run of java identifier characters that starts with an identifier start
+ * character and has at least {@value #MIN_WORD_LENGTH} characters. The index must only be
+ * used on the FX application thread.</p>
+ */
+public final class WordIndex {
+
+    static final int MIN_WORD_LENGTH = 2;
+
+    private static final char[] NO_KEYS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final String[] NO_WORDS = new String[0];
+    private static final int[] NO_COUNTS = new int[0];
+
+    private static final class Node {
+        // sorted lower case characters of the children
+        char[] keys = NO_KEYS;
+        Node[] children = NO_CHILDREN;
+        // case variants of the words ending at this node and their number of occurrences
+        String[] words = NO_WORDS;
+        int[] counts = NO_COUNTS;
+
+        Node child(char key) {
+            int idx = Arrays.binarySearch(keys, key);
+            return idx < 0 ? null : children[idx];
+        }
+
+        Node addChild(char key) {
+            int idx = Arrays.binarySearch(keys, key);
+            if (idx >= 0) return children[idx];
+            int insertAt = -idx - 1;
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, insertAt);
+            System.arraycopy(children, 0, newChildren, 0, insertAt);
+            System.arraycopy(keys, insertAt, newKeys, insertAt + 1, keys.length - insertAt);
+            System.arraycopy(children, insertAt, newChildren, insertAt + 1, children.length - insertAt);
+            Node child = new Node();
+            newKeys[insertAt] = key;
+            newChildren[insertAt] = child;
+            keys = newKeys;
+            children = newChildren;
+            return child;
+        }
+
+        void removeChild(char key) {
+            int idx = Arrays.binarySearch(keys, key);
+            if (idx < 0) return;
+            char[] newKeys = new char[keys.length - 1];
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(keys, 0, newKeys, 0, idx);
+            System.arraycopy(children, 0, newChildren, 0, idx);
+            System.arraycopy(keys, idx + 1, newKeys, idx, newKeys.length - idx);
+            System.arraycopy(children, idx + 1, newChildren, idx, newChildren.length - idx);
+            keys = newKeys;
+            children = newChildren;
+        }
+
+        int indexOf(CharSequence word) {
+            for (int i = 0; i < words.length; i++) {
+                if (words[i].contentEquals(word)) return i;
+            }
+            return -1;
+        }
+
+        boolean isEmpty() {
+            return words.length == 0 && keys.length == 0;
+        }
+    }
+
+    private Node root = new Node();
+    // number of distinct words
+    private int size;
+
+    WordIndex() {
+    }
+
+    /**
+     * Returns the words that start with the specified prefix (case-insensitive) in the
+     * order of their lower case representation.
+     * @param prefix prefix
+     * @param limit maximum number of words
+     * @return words that start with the prefix
+     */
+    public List<String> complete(String prefix, int limit) {
+        List<String> result = new ArrayList<>(Math.min(limit, 64));
+        Node node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.child(Character.toLowerCase(prefix.charAt(i)));
+        }
+        if (node != null) collect(node, limit, result);
+        return result;
+    }
+
+    private static void collect(Node node, int limit, List<String> result) {
+        for (String word : node.words) {
+            if (result.size() == limit) return;
+            result.add(word);
+        }
+        for (Node child : node.children) {
+            if (result.size() == limit) return;
+            collect(child, limit, result);
+        }
+    }
+
+    /**
+     * @param word word (case-sensitive)
+     * @return number of occurrences of the specified word
+     */
+    public int getCount(String word) {
+        Node node = find(word);
+        if (node == null) return 0;
+        int idx = node.indexOf(word);
+        return idx < 0 ? 0 : node.counts[idx];
+    }
+
+    /**
+     * @return number of distinct words
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Rebuilds the index for the specified content.
+     * @param text content to index
+     */
+    void reset(TextBuffer text) {
+        root = new Node();
+        size = 0;
+        scan(text, 0, text.length(), true);
+    }
+
+    /**
+     * Updates the index for the specified change.
+     * @param before content before the change
+     * @param after content after the change
+     * @param change change
+     */
+    void applyChange(TextBuffer before, TextBuffer after, DocumentChange change) {
+        if (change.flush) {
+            reset(after);
+            return;
+        }
+        // words overlapping the changed range
+        int start = change.rangeOffset;
+        int end = start + change.rangeLength;
+        while (start > 0 && isWordChar(before.charAt(start - 1))) start--;
+        while (end < before.length() && isWordChar(before.charAt(end))) end++;
+        scan(before, start, end, false);
+        scan(after, start, end + change.text.length() - change.rangeLength, true);
+    }
+
+    static boolean isWordChar(char c) {
+        return Character.isJavaIdentifierPart(c) && !Character.isIdentifierIgnorable(c);
+    }
+
+    private void scan(TextBuffer text, int start, int end, boolean add) {
+        StringBuilder word = new StringBuilder();
+        text.forEachChunk(start, end, chunk -> {
+            for (int i = 0; i < chunk.length(); i++) {
+                char c = chunk.charAt(i);
+                if (isWordChar(c)) {
+                    word.append(c);
+                } else if (word.length() > 0) {
+                    update(word, add);
+                    word.setLength(0);
+                }
+            }
+        });
+        update(word, add);
+    }
+
+    private void update(StringBuilder word, boolean add) {
+        if (word.length() < MIN_WORD_LENGTH || !Character.isJavaIdentifierStart(word.charAt(0))) return;
+        if (add) {
+            add(word);
+        } else {
+            remove(word);
+        }
+    }
+
+    private void add(CharSequence word) {
+        Node node = root;
+        for (int i = 0; i < word.length(); i++) {
+            node = node.addChild(Character.toLowerCase(word.charAt(i)));
+        }
+        int idx = node.indexOf(word);
+        if (idx >= 0) {
+            node.counts[idx]++;
+            return;
+        }
+        node.words = Arrays.copyOf(node.words, node.words.length + 1);
+        node.counts = Arrays.copyOf(node.counts, node.counts.length + 1);
+        node.words[node.words.length - 1] = word.toString();
+        node.counts[node.counts.length - 1] = 1;
+        size++;
+    }
+
+    private void remove(CharSequence word) {
+        Node[] path = new Node[word.length() + 1];
+        path[0] = root;
+        for (int i = 0; i < word.length(); i++) {
+            path[i + 1] = path[i].child(Character.toLowerCase(word.charAt(i)));
+            if (path[i + 1] == null) return;
+        }
+        Node node = path[word.length()];
+        int idx = node.indexOf(word);
+        if (idx < 0) return;
+        if (--node.counts[idx] > 0) return;
+
+        // remove the variant and prune empty nodes
+        int last = node.words.length - 1;
+        node.words[idx] = node.words[last];
+        node.counts[idx] = node.counts[last];
+        node.words = last == 0 ? NO_WORDS : Arrays.copyOf(node.words, last);
+        node.counts = last == 0 ? NO_COUNTS : Arrays.copyOf(node.counts, last);
+        size--;
+        for (int i = word.length(); i > 0 && path[i].isEmpty(); i--) {
+            path[i - 1].removeChild(Character.toLowerCase(word.charAt(i - 1)));
+        }
+    }
+
+    private Node find(CharSequence word) {
+        Node node = root;
+        for (int i = 0; i < word.length() && node != null; i++) {
+            node = node.child(Character.toLowerCase(word.charAt(i)));
+        }
+        return node;
+    }
+}
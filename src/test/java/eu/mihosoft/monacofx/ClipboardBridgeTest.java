@@ -26,8 +26,6 @@ package eu.mihosoft.monacofx;
 import netscape.javascript.JSObject;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.mockito.ArgumentCaptor;
-import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
@@ -48,19 +46,11 @@ public class ClipboardBridgeTest {
 	@InjectMocks
 	ClipboardBridge clipboardBridge;
 
-	@Captor
-	ArgumentCaptor<String> updateTextCapture;
-
-
 	@Test
 	public void copy() {
 		// given
-		JSObject selection = Mockito.mock(JSObject.class);
-		when(selection.getMember("startLineNumber")).thenReturn(1);
-		when(selection.getMember("startColumn")).thenReturn(6);
-		when(selection.getMember("endLineNumber")).thenReturn(1);
-		when(selection.getMember("endColumn")).thenReturn(18);
-		when(document.getText()).thenReturn("some stringy text where 'stringy text' is copied");
+		JSObject selection = selection(1, 6, 1, 18);
+		when(document.getText(new Position(1, 6), new Position(1, 18))).thenReturn("stringy text");
 
 		// when
 		clipboardBridge.copy(selection);
@@ -70,17 +60,25 @@ public class ClipboardBridgeTest {
 	}
 
 	@Test
-	public void paste()  {
+	public void copyMultipleLinesWithCrLf() {
 		// given
-		when(document.getText()).thenReturn("some text where at this position '' something is pasted");
+		Document crlfDocument = new Document();
+		crlfDocument.setText("first line\r\nsecond line\r\nthird line");
+		ClipboardBridge bridge = new ClipboardBridge(crlfDocument, systemClipboardWrapper);
 
-		JSObject selection = Mockito.mock(JSObject.class);
-		when(selection.getMember("startLineNumber")).thenReturn(1);
-		when(selection.getMember("startColumn")).thenReturn(35);
+		// when
+		bridge.copy(selection(1, 7, 3, 6));
+
+		// then
+		verify(systemClipboardWrapper).putString("line\r\nsecond line\r\nthird");
+	}
+
+	@Test
+	public void paste()  {
+		// given
+		JSObject selection = selection(1, 35, 1, 35);
 
 		JSObject position = Mockito.mock(JSObject.class);
-		when(position.getMember("lineNumber")).thenReturn(1);
-		when(position.getMember("column")).thenReturn(33);
 
 		when(systemClipboardWrapper.hasString()).thenReturn(true);
 		when(systemClipboardWrapper.getString()).thenReturn("text in \nclipboard");
@@ -89,12 +87,40 @@ public class ClipboardBridgeTest {
 		JSObject paste = clipboardBridge.paste(selection, position);
 
 		// then
-		Mockito.verify(document).updateText(updateTextCapture.capture());
-		assertEquals("some text where at this position 'text in \nclipboard' something is pasted", updateTextCapture.getValue());
-		verify(paste).setMember("lineNumber", 2L);
-		verify(paste).setMember("column", 42);
+		verify(document).replace(new Position(1, 35), new Position(1, 35), "text in \nclipboard");
+		verify(paste).setMember("lineNumber", 2);
+		verify(paste).setMember("column", 10);
+	}
+
+	@Test
+	public void pasteReplacesSelection()  {
+		// given
+		Document realDocument = new Document();
+		realDocument.setText("some text where at this position 'selected' something is pasted\nsecond line");
+		ClipboardBridge bridge = new ClipboardBridge(realDocument, systemClipboardWrapper);
+
+		JSObject position = Mockito.mock(JSObject.class);
+		when(systemClipboardWrapper.hasString()).thenReturn(true);
+		when(systemClipboardWrapper.getString()).thenReturn("text in clipboard");
 
+		// when
+		bridge.paste(selection(1, 35, 1, 43), position);
+
+		// then
+		assertEquals("some text where at this position 'text in clipboard' something is pasted\nsecond line",
+				realDocument.getText());
+		verify(position).setMember("lineNumber", 1);
+		verify(position).setMember("column", 52);
+	}
+
+	private static JSObject selection(int startLineNumber, int startColumn, int endLineNumber, int endColumn) {
+		JSObject selection = Mockito.mock(JSObject.class);
+		when(selection.getMember("startLineNumber")).thenReturn(startLineNumber);
+		when(selection.getMember("startColumn")).thenReturn(startColumn);
+		when(selection.getMember("endLineNumber")).thenReturn(endLineNumber);
+		when(selection.getMember("endColumn")).thenReturn(endColumn);
+		return selection;
 	}
 
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,136 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class DecorationStoreTest {
+
+	private static final DecorationOptions OPTIONS = new DecorationOptions("hit");
+
+	@Test
+	public void decorationsDoNotGrowAtEdges() {
+		// given
+		Document document = new Document();
+		document.setText("0123456789");
+		Decoration decoration = document.getDecorations().add(2, 5, OPTIONS);
+
+		// when
+		document.replace(document.positionAt(5), document.positionAt(5), "ab");
+		document.replace(document.positionAt(2), document.positionAt(2), "xyz");
+		document.replace(document.positionAt(0), document.positionAt(1), "");
+
+		// then
+		assertEquals(4, decoration.getStart());
+		assertEquals(7, decoration.getEnd());
+		assertEquals("234", document.getText(decoration.getStart(), decoration.getEnd()));
+	}
+
+	@Test
+	public void removeGroupRemovesItsDecorations() {
+		// given
+		Document document = new Document();
+		document.setText("0123456789");
+		DecorationStore store = document.getDecorations();
+		Object owner = new Object();
+		List<Decoration> group = new ArrayList<>();
+		group.add(store.add(0, 1, OPTIONS));
+		group.add(store.add(2, 3, OPTIONS));
+		store.setGroup(owner, group);
+		store.add(4, 5, OPTIONS);
+
+		// when
+		store.removeGroup(owner);
+
+		// then
+		assertNull(store.getGroup(owner));
+		assertEquals(1, store.size());
+		assertEquals(4, store.query(0, 10).get(0).getStart());
+	}
+
+	@Test
+	public void randomEditsMatchNaiveModel() {
+		// given
+		Random random = new Random(11);
+		Document document = new Document();
+		document.setText("lorem ipsum dolor sit amet\nconsectetur adipiscing elit\n");
+		DecorationStore store = document.getDecorations();
+		// expected ranges
+		Map<Decoration, int[]> expected = new HashMap<>();
+
+		for (int i = 0; i < 2000; i++) {
+			// when
+			int op = random.nextInt(10);
+			int length = document.getLength();
+			if (op < 4) {
+				int start = random.nextInt(length + 1);
+				int end = start + random.nextInt(Math.min(length - start, 10) + 1);
+				expected.put(store.add(start, end, OPTIONS), new int[]{start, end});
+			} else if (op < 5 && !expected.isEmpty()) {
+				Decoration d = new ArrayList<>(expected.keySet()).get(random.nextInt(expected.size()));
+				store.remove(d);
+				expected.remove(d);
+			} else {
+				int offset = random.nextInt(length + 1);
+				int removed = random.nextInt(Math.min(length - offset, 6) + 1);
+				String text = random.nextBoolean() ? "" : "abc".substring(random.nextInt(3));
+				document.replace(document.positionAt(offset), document.positionAt(offset + removed), text);
+				int delta = text.length() - removed;
+				for (int[] r : expected.values()) {
+					int s = r[0] < offset ? r[0] : r[0] >= offset + removed ? r[0] + delta : offset;
+					int e = r[1] <= offset ? r[1] : r[1] >= offset + removed ? r[1] + delta : offset;
+					r[0] = s;
+					r[1] = Math.max(s, e);
+				}
+			}
+
+			// then
+			assertEquals(expected.size(), store.size());
+			int qs = random.nextInt(document.getLength() + 1);
+			int qe = qs + random.nextInt(20);
+			List<Decoration> result = store.query(qs, qe);
+			int count = 0;
+			for (Map.Entry<Decoration, int[]> entry : expected.entrySet()) {
+				int[] r = entry.getValue();
+				assertEquals(r[0], entry.getKey().getStart());
+				assertEquals(r[1], entry.getKey().getEnd());
+				if (r[0] <= qe && r[1] >= qs) {
+					count++;
+					assertTrue(result.contains(entry.getKey()));
+				}
+			}
+			assertEquals(count, result.size());
+		}
+	}
+}
@@ -0,0 +1,103 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DirtyLineRangesTest {
+
+	@Test
+	public void distantChangesKeepSeparateRanges() {
+		// given
+		DirtyLineRanges ranges = new DirtyLineRanges();
+
+		// when (edits on line 1 and line 100000, one line inserted between them)
+		ranges.applyChange(0, 0, 1);
+		ranges.applyChange(99_999, 99_999, 1);
+		ranges.applyChange(500, 500, 2);
+		ranges.applyChange(1, 1, 1);
+
+		// then
+		assertEquals("DirtyLineRanges[0-2, 500-502, 100000-100001]", ranges.toString());
+	}
+
+	@Test
+	public void closestRangesAreMergedBeyondTheLimit() {
+		// given
+		DirtyLineRanges ranges = new DirtyLineRanges();
+
+		// when
+		for (int line = 0; line < 1000; line += 10) {
+			ranges.applyChange(line, line, 1);
+		}
+
+		// then
+		assertEquals(DirtyLineRanges.MAX_RANGES, ranges.getRangeCount());
+		for (int line = 0; line < 1000; line += 10) {
+			int r = 0;
+			while (ranges.getEnd(r) <= line) r++;
+			assertTrue(ranges.getStart(r) <= line);
+		}
+	}
+
+	@Test
+	public void randomChangesMatchNaiveModel() {
+		// given
+		Random random = new Random(3);
+		DirtyLineRanges ranges = new DirtyLineRanges();
+		List<Boolean> expected = new ArrayList<>(Collections.nCopies(1000, false));
+
+		for (int i = 0; i < 2000; i++) {
+			// when
+			if (i % 40 == 0) {
+				ranges.clear();
+				Collections.fill(expected, false);
+			}
+			int first = random.nextInt(expected.size());
+			int last = Math.min(expected.size() - 1, first + random.nextInt(3));
+			int insertedLines = 1 + random.nextInt(3);
+			ranges.applyChange(first, last, insertedLines);
+			expected.subList(first, last + 1).clear();
+			expected.addAll(first, Collections.nCopies(insertedLines, true));
+
+			// then (ranges are sorted and neither overlap nor touch)
+			List<Boolean> actual = new ArrayList<>(Collections.nCopies(expected.size(), false));
+			for (int r = 0; r < ranges.getRangeCount(); r++) {
+				assertTrue(r == 0 || ranges.getStart(r) > ranges.getEnd(r - 1));
+				for (int line = ranges.getStart(r); line < ranges.getEnd(r); line++) {
+					actual.set(line, true);
+				}
+			}
+			assertEquals(expected, actual);
+		}
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DocumentIOTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void roundTripLargeFile() throws IOException {
+		// given (memory-mapped, multi-byte characters cross buffer boundaries)
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; sb.length() < 2 * 1024 * 1024; i++) {
+			sb.append("line ").append(i).append(" äöü 😀\r\n");
+		}
+		Path path = folder.newFile("large.txt").toPath();
+		Files.write(path, sb.toString().getBytes(StandardCharsets.UTF_8));
+
+		// when
+		TextBuffer content = DocumentIO.read(path, StandardCharsets.UTF_8).text;
+		Path copy = folder.getRoot().toPath().resolve("copy.txt");
+		DocumentIO.write(content, copy, StandardCharsets.UTF_8, false);
+
+		// then
+		assertEquals(sb.toString(), content.toString());
+		assertArrayEquals(Files.readAllBytes(path), Files.readAllBytes(copy));
+	}
+
+	@Test
+	public void byteOrderMarkIsKeptAndWriteReplacesFile() throws IOException {
+		// given
+		Path path = folder.newFile("bom.txt").toPath();
+		Files.write(path, "﻿hello".getBytes(StandardCharsets.UTF_8));
+
+		// when
+		DocumentIO.FileContent content = DocumentIO.read(path, StandardCharsets.UTF_8);
+		DocumentIO.write(content.text.insert(5, " world"), path, StandardCharsets.UTF_8, content.byteOrderMark);
+
+		// then
+		assertEquals("hello", content.text.toString());
+		assertTrue(content.byteOrderMark);
+		assertEquals("﻿hello world", new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+		assertEquals(1, folder.getRoot().list().length);
+	}
+
+	@Test
+	public void writeKeepsPermissionsAndFollowsSymbolicLinks() throws IOException {
+		Assume.assumeTrue(Files.getFileStore(folder.getRoot().toPath())
+				.supportsFileAttributeView(PosixFileAttributeView.class));
+		// given
+		Path target = folder.newFile("target.txt").toPath();
+		Files.setPosixFilePermissions(target, PosixFilePermissions.fromString("rwxr-x---"));
+		Path link = Files.createSymbolicLink(folder.getRoot().toPath().resolve("link.txt"), target);
+
+		// when
+		DocumentIO.write(TextBuffer.of("content"), link, StandardCharsets.UTF_8, false);
+
+		// then
+		assertTrue(Files.isSymbolicLink(link));
+		assertEquals("content", new String(Files.readAllBytes(target), StandardCharsets.UTF_8));
+		assertEquals(PosixFilePermissions.fromString("rwxr-x---"), Files.getPosixFilePermissions(target));
+	}
+}
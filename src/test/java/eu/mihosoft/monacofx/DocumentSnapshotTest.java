@@ -0,0 +1,65 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class DocumentSnapshotTest {
+
+	@Test
+	public void snapshotIsNotAffectedByLaterChanges() {
+		// given
+		Document document = new Document();
+		document.setText("first\r\nsecond\nthird");
+		DocumentSnapshot snapshot = document.snapshot();
+
+		// when
+		document.replace(new Position(2, 1), new Position(2, 7), "2nd");
+
+		// then
+		assertFalse(snapshot.isCurrent());
+		assertTrue(document.snapshot().isCurrent());
+		assertEquals(document.getVersionId(), document.snapshot().getVersionId());
+		assertTrue(snapshot.getVersionId() < document.getVersionId());
+		assertSame(document, snapshot.getDocument());
+
+		assertEquals("first\r\nsecond\nthird", snapshot.getText());
+		assertEquals(3, snapshot.getLineCount());
+		assertEquals("second", snapshot.getLine(2));
+		assertEquals(7, snapshot.getLineStart(2));
+		assertEquals(6, snapshot.getLineLength(2));
+		assertEquals(new Position(2, 3), snapshot.positionAt(9));
+		assertEquals(9, snapshot.offsetAt(new Position(2, 3)));
+		assertEquals(3, snapshot.getLineNumber(14));
+		assertEquals("st\r\nsec", snapshot.getText(new Position(2, 4), new Position(1, 4)));
+
+		assertEquals("first\r\n2nd\nthird", document.snapshot().getText());
+		assertEquals("2nd", document.snapshot().getLine(2));
+	}
+}
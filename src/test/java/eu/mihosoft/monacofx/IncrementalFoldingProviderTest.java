@@ -0,0 +1,139 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class IncrementalFoldingProviderTest {
+
+	@Test
+	public void indentationFoldings() throws Exception {
+		// given
+		Document document = new Document();
+		document.setText("a\n  b\n\n  c\n    d\ne");
+
+		// when
+		List<Folding> foldings = foldings(new IndentationFoldingProvider(), document);
+
+		// then
+		assertEquals("[{\"start\":1,\"end\":5},{\"start\":4,\"end\":5}]", Folding.toJSON(foldings));
+	}
+
+	@Test
+	public void bracketFoldings() throws Exception {
+		// given
+		Document document = new Document();
+		document.setText("class A {\n  void f() {\n    x\n  }\n  int[] a = {1,\n    2,\n    3};\n}\n{}");
+
+		// when
+		List<Folding> foldings = foldings(new BracketFoldingProvider(), document);
+
+		// then (the lines of the closing brackets are not folded)
+		assertEquals("[{\"start\":1,\"end\":7},{\"start\":2,\"end\":3},{\"start\":5,\"end\":6}]",
+				Folding.toJSON(foldings));
+	}
+
+	@Test
+	public void markerFoldings() throws Exception {
+		// given
+		Document document = new Document();
+		document.setText("#region a\n  #region b\n  x\n  #endregion\n#endregion\n"
+				+ "// #region c\ny\n// #endregion\n<!-- #region d -->\nz\n<!-- #endregion -->\n"
+				+ "x #region e\n#regions\n#endregion");
+
+		// when
+		List<Folding> foldings = foldings(new MarkerFoldingProvider(), document);
+
+		// then
+		assertEquals("[{\"start\":1,\"end\":5,\"kind\":\"region\"},{\"start\":2,\"end\":4,\"kind\":\"region\"},"
+						+ "{\"start\":6,\"end\":8,\"kind\":\"region\"},{\"start\":9,\"end\":11,\"kind\":\"region\"}]",
+				Folding.toJSON(foldings));
+	}
+
+	@Test
+	public void randomEditsMatchFullScan() throws Exception {
+		// given
+		Random random = new Random(7);
+		String[] inserts = {"{", "}", "\n", "\n  ", "  x", "// #region\n", "// #endregion\n", "\t", ""};
+		IncrementalFoldingProvider[] providers = {
+				new IndentationFoldingProvider(), new BracketFoldingProvider(), new MarkerFoldingProvider()};
+		Document document = new Document();
+		document.setText("class A {\n  void f() {\n    x\n  }\n}\n");
+
+		for (int i = 0; i < 500; i++) {
+			// when
+			for (int j = random.nextInt(3); j >= 0; j--) {
+				int offset = random.nextInt(document.getLength() + 1);
+				int length = random.nextInt(Math.min(document.getLength() - offset, 8) + 1);
+				document.replace(document.positionAt(offset), document.positionAt(offset + length),
+						inserts[random.nextInt(inserts.length)]);
+			}
+
+			// then
+			for (IncrementalFoldingProvider provider : providers) {
+				String expected = Folding.toJSON(provider.computeFoldings(
+						document.getTextBuffer(), document.getVersionId(), new CancellationToken()).get());
+				assertEquals(expected, Folding.toJSON(foldings(provider, document)));
+			}
+		}
+	}
+
+	@Test
+	public void manyChangesWithoutRequestsMatchFullScan() throws Exception {
+		// given
+		BracketFoldingProvider provider = new BracketFoldingProvider();
+		Document document = new Document();
+		document.setText("class A {\n}\n");
+		foldings(provider, document);
+
+		// when (more changes than are recorded)
+		for (int i = 0; i < 5000; i++) {
+			document.replace(new Position(2, 1), new Position(2, 1), i % 2 == 0 ? "{\n" : "}\n");
+		}
+		String afterChanges = Folding.toJSON(foldings(provider, document));
+		String expectedAfterChanges = fullScan(provider, document);
+		document.dispose();
+		document.replace(new Position(1, 1), new Position(1, 1), "{\n\n}\n");
+		String afterDispose = Folding.toJSON(foldings(provider, document));
+
+		// then
+		assertEquals(expectedAfterChanges, afterChanges);
+		assertEquals(fullScan(provider, document), afterDispose);
+	}
+
+	private static String fullScan(IncrementalFoldingProvider provider, Document document) throws Exception {
+		return Folding.toJSON(provider.computeFoldings(
+				document.getTextBuffer(), document.getVersionId(), new CancellationToken()).get());
+	}
+
+	private static List<Folding> foldings(AsyncFoldingProvider provider, Document document) throws Exception {
+		return provider.computeFoldings(document, document.getTextBuffer(),
+				document.getVersionId(), new CancellationToken()).get();
+	}
+}
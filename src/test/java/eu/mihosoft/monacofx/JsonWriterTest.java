@@ -0,0 +1,75 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class JsonWriterTest {
+
+	@Test
+	public void nestedValues() {
+		// given
+		JsonWriter json = new JsonWriter();
+
+		// when
+		json.beginObject()
+				.name("a").value(1)
+				.name("b").beginArray().value("x").value(true).value((String) null).value(1.5).endArray()
+				.name("c").beginObject().endObject()
+				.name("d").value(JsonWriter.raw("{\"e\":[]}"))
+				.endObject();
+
+		// then
+		assertEquals("{\"a\":1,\"b\":[\"x\",true,null,1.5],\"c\":{},\"d\":{\"e\":[]}}", json.toString());
+	}
+
+	@Test
+	public void escapesStrings() {
+		// given
+		JsonWriter json = new JsonWriter();
+
+		// when
+		json.value("'q' \"dq\" \\ \n\r\t \u0001 \u2028 ä");
+
+		// then
+		assertEquals("\"'q' \\\"dq\\\" \\\\ \\n\\r\\t \\u0001 \\u2028 ä\"", json.toString());
+	}
+
+	@Test
+	public void themeToJSON() {
+		// given
+		EditorTheme theme = new EditorTheme("t", "vs-dark", true,
+				new Rule("keyword", "ff0000"), new Rule("it's", null, "00ff00"));
+
+		// when
+		String json = theme.toJSON();
+
+		// then
+		assertEquals("{\"base\":\"vs-dark\",\"inherit\":true,\"rules\":["
+				+ "{\"token\":\"keyword\",\"foreground\":\"ff0000\"},"
+				+ "{\"token\":\"it's\",\"background\":\"00ff00\"}]}", json);
+	}
+}
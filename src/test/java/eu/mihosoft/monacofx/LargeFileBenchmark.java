@@ -0,0 +1,106 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+import javafx.application.Platform;
+import javafx.scene.Scene;
+import javafx.stage.Stage;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Measures the open time and the per-keystroke latency of a large document (generated SQL
+ * dump, about 40 MB). Without arguments only the java side ({@link Document} not attached to
+ * an editor) is measured. With {@code --ui} the document is opened in a {@link MonacoFX}
+ * editor and every keystroke includes the round trip to monaco.
+ *
+ * Run with {@code gradle largeFileBenchmark} (add {@code --args=--ui} for the editor).
+ */
+public final class LargeFileBenchmark {
+
+    private static final int TARGET_LENGTH = 40 * 1024 * 1024;
+    private static final int KEYSTROKES = 1000;
+
+    private LargeFileBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String dump = createSqlDump();
+        System.out.println("document: " + dump.length() / (1024 * 1024) + " MB");
+
+        benchmark("java", new Document(), dump);
+
+        if (Arrays.asList(args).contains("--ui")) {
+            CountDownLatch done = new CountDownLatch(1);
+            Platform.startup(() -> {
+                MonacoFX monacoFX = new MonacoFX();
+                Stage stage = new Stage();
+                stage.setScene(new Scene(monacoFX, 1024, 768));
+                stage.show();
+                monacoFX.whenReady().thenAccept(editor -> {
+                    System.out.println("startup: " + monacoFX.getStartupTimes());
+                    benchmark("editor", editor.getDocument(), dump);
+                    done.countDown();
+                });
+            });
+            done.await();
+            Platform.exit();
+        }
+    }
+
+    private static void benchmark(String name, Document document, String text) {
+        long start = System.nanoTime();
+        document.setText(text);
+        long openTime = System.nanoTime() - start;
+
+        Random random = new Random(1);
+        long[] latencies = new long[KEYSTROKES];
+        for (int i = 0; i < KEYSTROKES; i++) {
+            Position position = document.positionAt(random.nextInt(document.getLength()));
+            long keystrokeStart = System.nanoTime();
+            document.replace(position, position, "x");
+            latencies[i] = System.nanoTime() - keystrokeStart;
+        }
+        Arrays.sort(latencies);
+
+        System.out.printf("%s: large-file mode %b, open %.1f ms, keystroke median %.3f ms, p99 %.3f ms, max %.3f ms%n",
+                name, document.isLargeFile(), openTime / 1e6, latencies[KEYSTROKES / 2] / 1e6,
+                latencies[KEYSTROKES * 99 / 100] / 1e6, latencies[KEYSTROKES - 1] / 1e6);
+    }
+
+    private static String createSqlDump() {
+        StringBuilder sb = new StringBuilder(TARGET_LENGTH + 256);
+        sb.append("CREATE TABLE customer (id INTEGER PRIMARY KEY, name VARCHAR(64), email VARCHAR(128), balance DECIMAL(10,2));\n");
+        Random random = new Random(42);
+        for (int id = 1; sb.length() < TARGET_LENGTH; id++) {
+            sb.append("INSERT INTO customer (id, name, email, balance) VALUES (")
+                    .append(id).append(", 'customer ").append(id).append("', 'customer")
+                    .append(id).append("@example.com', ").append(random.nextInt(100000) / 100.0)
+                    .append(");\n");
+        }
+        return sb.toString();
+    }
+}
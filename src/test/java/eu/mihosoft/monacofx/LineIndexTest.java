@@ -0,0 +1,67 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class LineIndexTest {
+
+	@Test
+	public void randomEditsMatchRebuiltIndex() {
+		// given
+		Random random = new Random(3);
+		StringBuilder text = new StringBuilder("first\nsecond\r\nthird");
+		LineIndex index = new LineIndex();
+		index.reset(text);
+
+		// when
+		for (int i = 0; i < 3000; i++) {
+			int offset = random.nextInt(text.length() + 1);
+			int length = random.nextInt(Math.min(text.length() - offset, 20) + 1);
+			String inserted = random.nextInt(4) == 0 ? "\nab\n" : random.nextBoolean() ? "x" : "";
+			text.replace(offset, offset + length, inserted);
+			index.replace(offset, length, inserted);
+
+			// then
+			if (i % 100 == 0) assertSameLines(text, index);
+		}
+		assertSameLines(text, index);
+	}
+
+	private static void assertSameLines(CharSequence text, LineIndex index) {
+		LineIndex expected = new LineIndex();
+		expected.reset(text);
+		assertEquals(expected.getLineCount(), index.getLineCount());
+		for (int line = 0; line < expected.getLineCount(); line++) {
+			assertEquals(expected.getLineStart(line), index.getLineStart(line));
+		}
+		for (int offset = 0; offset <= text.length(); offset++) {
+			assertEquals(expected.getLineIndex(offset), index.getLineIndex(offset));
+		}
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MappedLineIndexTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void readLinesAcrossChunks() throws Exception {
+		// given (lines longer than a chunk, i.e., chunks without line starts)
+		Random random = new Random(7);
+		List<String> lines = new ArrayList<>();
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			String line = "line " + i + " " + "x".repeat(random.nextInt(i % 100 == 0 ? 3000 : 40));
+			lines.add(line);
+			sb.append(line).append(i % 2 == 0 ? "\n" : "\r\n");
+		}
+		Path path = folder.newFile("log.txt").toPath();
+		Files.write(path, sb.toString().getBytes(StandardCharsets.UTF_8));
+
+		// when
+		try (MappedLineIndex index = new MappedLineIndex(path, 1024, null)) {
+			index.whenComplete().get();
+
+			// then
+			assertTrue(index.isComplete());
+			assertEquals(lines.size(), index.getLineCount());
+			for (int i = 0; i < lines.size(); i += 37) {
+				assertEquals(lines.get(i), index.readLines(i, 1, StandardCharsets.UTF_8));
+			}
+			assertEquals(String.join("\n", lines.subList(62, 70)),
+					index.readLines(62, 8, StandardCharsets.UTF_8).replace("\r\n", "\n"));
+			assertEquals(lines.get(999), index.readLines(999, 1, StandardCharsets.UTF_8));
+		}
+	}
+
+	@Test
+	public void lastLineWithoutLineBreak() throws Exception {
+		// given
+		Path path = folder.newFile("short.txt").toPath();
+		Files.write(path, "a\nb".getBytes(StandardCharsets.UTF_8));
+
+		// when
+		try (MappedLineIndex index = new MappedLineIndex(path, 1, null)) {
+			index.whenComplete().get();
+
+			// then
+			assertEquals(2, index.getLineCount());
+			assertEquals("a\nb", index.readLines(0, 2, StandardCharsets.UTF_8));
+		}
+	}
+
+	@Test
+	public void charsetsWithMultiByteLineBreaksAreNotSupported() {
+		assertTrue(MappedLineIndex.isSupported(StandardCharsets.UTF_8));
+		assertTrue(MappedLineIndex.isSupported(StandardCharsets.ISO_8859_1));
+		assertFalse(MappedLineIndex.isSupported(StandardCharsets.UTF_16));
+		assertFalse(MappedLineIndex.isSupported(StandardCharsets.UTF_16LE));
+		assertFalse(MappedLineIndex.isSupported(Charset.forName("UTF-32")));
+	}
+}
@@ -0,0 +1,82 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class MarkerSinkTest {
+
+	private static final Marker MARKER = new Marker(Marker.Severity.ERROR, "unexpected token",
+			new Position(1, 1), new Position(1, 4));
+
+	@Test
+	public void burstsOfTheSameOwnerAreCoalesced() {
+		// given
+		Document document = new Document();
+		document.setText("foo bar");
+		// detached sink (not attached to a monaco model)
+		MarkerSink sink = new MarkerSink(document);
+		int version = document.getVersionId();
+
+		// when
+		sink.submit("lint", version, List.of(MARKER));
+		sink.submit("lint", version, List.of());
+		sink.submit("lint", document.snapshot(), List.of(MARKER));
+		sink.submit("spell", version, List.of(MARKER));
+		sink.clear("spell");
+
+		// then
+		assertEquals(5, sink.getSubmittedCount());
+		assertEquals(3, sink.getCoalescedCount());
+		assertEquals(0, sink.getDroppedCount());
+		assertEquals(0, sink.getAppliedCount());
+	}
+
+	@Test
+	public void batchesForOutdatedVersionsAreDropped() {
+		// given
+		Document document = new Document();
+		document.setText("foo bar");
+		// detached sink (not attached to a monaco model)
+		MarkerSink sink = new MarkerSink(document);
+		DocumentSnapshot snapshot = document.snapshot();
+
+		// when
+		document.replace(new Position(1, 1), new Position(1, 4), "baz");
+		sink.submit("lint", snapshot, List.of(MARKER));
+		sink.submit("lint", snapshot.getVersionId(), List.of(MARKER));
+		sink.submit("lint", document.getVersionId(), List.of(MARKER));
+		sink.submit("lint", document.getVersionId() + 1, List.of(MARKER));
+
+		// then (batches for the current or a newer version are kept)
+		assertEquals(4, sink.getSubmittedCount());
+		assertEquals(2, sink.getDroppedCount());
+		assertEquals(1, sink.getCoalescedCount());
+		assertEquals("MarkerSink[submitted=4, coalesced=1, dropped=2, applied=0]", sink.toString());
+	}
+}
@@ -0,0 +1,110 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ProviderCacheTest {
+
+	private static ProviderCache.Key key(int versionId, int startColumn) {
+		return new ProviderCache.Key("hover", null, versionId, 1, startColumn, startColumn + 3);
+	}
+
+	@Test
+	public void repeatedRequestsAreServedFromCache() {
+		// given
+		ProviderCache cache = new ProviderCache();
+		AtomicInteger calls = new AtomicInteger();
+
+		// when
+		for (int i = 0; i < 3; i++) {
+			cache.get(key(1, 5), t -> CompletableFuture.completedFuture("h" + calls.incrementAndGet()),
+					new CancellationToken());
+		}
+		String other = cache.get(key(2, 5), t -> CompletableFuture.completedFuture("h" + calls.incrementAndGet()),
+				new CancellationToken()).join();
+
+		// then (a new version is a different key)
+		assertEquals(2, calls.get());
+		assertEquals("h2", other);
+		assertEquals(2, cache.getHitCount());
+		assertEquals(2, cache.getMissCount());
+	}
+
+	@Test
+	public void providerIsCancelledIfAllRequestsAreCancelled() {
+		// given
+		ProviderCache cache = new ProviderCache();
+		CancellationToken[] providerToken = new CancellationToken[1];
+		CompletableFuture<String> pending = new CompletableFuture<>();
+		CancellationToken first = new CancellationToken();
+		CancellationToken second = new CancellationToken();
+		cache.get(key(1, 1), t -> { providerToken[0] = t; return pending; }, first);
+		CompletableFuture<String> secondResult = cache.get(key(1, 1), t -> pending, second);
+
+		// when
+		first.cancel();
+
+		// then
+		assertFalse(providerToken[0].isCancellationRequested());
+		pending.complete("x");
+		assertEquals("x", secondResult.join());
+
+		// given
+		CompletableFuture<String> pending2 = new CompletableFuture<>();
+		CancellationToken third = new CancellationToken();
+		cache.get(key(1, 9), t -> { providerToken[0] = t; return pending2; }, third);
+
+		// when
+		third.cancel();
+
+		// then (the cancelled result is not cached)
+		assertTrue(providerToken[0].isCancellationRequested());
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void failedResultsAreNotCachedAndCapacityIsBounded() {
+		// given
+		ProviderCache cache = new ProviderCache(2);
+
+		// when
+		cache.get(key(1, 1), t -> CompletableFuture.failedFuture(new IllegalStateException()),
+				new CancellationToken());
+		for (int i = 0; i < 5; i++) {
+			cache.get(key(1, 10 + i), t -> CompletableFuture.completedFuture("x"), new CancellationToken());
+		}
+
+		// then
+		assertEquals(2, cache.size());
+		assertEquals(6, cache.getMissCount());
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+
+public class SearchServiceTest {
+
+	private static List<SearchMatch> search(String text, SearchQuery query, String replacement, int chunkSize) {
+		SearchService.Search search = new SearchService.Search(
+				null, TextBuffer.of(text), 1, query, replacement, chunkSize);
+		return search.run(ForkJoinPool.commonPool(), null).join();
+	}
+
+	private static List<Integer> offsets(List<SearchMatch> matches) {
+		List<Integer> offsets = new ArrayList<>();
+		matches.forEach(m -> offsets.add(m.offset));
+		return offsets;
+	}
+
+	@Test
+	public void chunkedSearchFindsSameMatchesAsSingleChunk() {
+		// given
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 500; i++) {
+			sb.append("foo bar").append(i).append(" Foo food\n");
+		}
+		String text = sb.toString();
+		SearchQuery query = new SearchQuery("foo", false, false, true);
+
+		// when
+		List<SearchMatch> chunked = search(text, query, null, 64);
+		List<SearchMatch> single = search(text, query, null, Integer.MAX_VALUE);
+
+		// then (whole word, case-insensitive: 'foo' and 'Foo', not 'food')
+		assertEquals(1000, chunked.size());
+		assertEquals(offsets(single), offsets(chunked));
+		List<Integer> expected = new ArrayList<>();
+		Matcher m = Pattern.compile("(?i)\\bfoo\\b").matcher(text);
+		while (m.find()) expected.add(m.start());
+		assertEquals(expected, offsets(chunked));
+	}
+
+	@Test
+	public void multiLineMatchesAcrossChunks() {
+		// given
+		String text = String.join("\n", Collections.nCopies(100, "begin\nend"));
+
+		// when
+		List<SearchMatch> matches = search(text, new SearchQuery("n\\ne", true, true, false), null, 16);
+
+		// then
+		assertEquals(100, matches.size());
+		assertEquals(3, matches.get(0).length);
+	}
+
+	@Test
+	public void replacementsReferToGroups() {
+		// given
+		String text = "a=1\nb=2\nc=3\n";
+
+		// when
+		List<SearchMatch> regex = search(text, new SearchQuery("(\\w)=(\\d)", true, true, false), "$2=$1", 4);
+		List<SearchMatch> literal = search(text, new SearchQuery("="), "$0", 4);
+
+		// then
+		assertEquals(3, regex.size());
+		assertEquals("1=a", regex.get(0).replacement);
+		assertEquals("3=c", regex.get(2).replacement);
+		assertEquals("$0", literal.get(1).replacement);
+	}
+}
@@ -0,0 +1,121 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+public class SymbolIndexTest {
+
+	private static final SymbolExtractor EXTRACTOR = SymbolExtractor.of(
+			SymbolExtractor.pattern(Pattern.compile("class\\s+(\\w+)"), Symbol.Kind.CLASS),
+			SymbolExtractor.pattern(Pattern.compile("void\\s+(\\w+)"), Symbol.Kind.METHOD));
+
+	private static final LanguageSupport LANGUAGE = new LanguageSupport() {
+		@Override
+		public String getName() {
+			return "test";
+		}
+
+		@Override
+		public SymbolExtractor getSymbolExtractor() {
+			return EXTRACTOR;
+		}
+	};
+
+	private static Document document(String text) {
+		Document document = new Document();
+		document.setLanguage("test");
+		document.setText(text);
+		return document;
+	}
+
+	private static List<String> names(List<Symbol> symbols) {
+		return symbols.stream().map(s -> s.name + "@" + s.lineNumber + ":" + s.startColumn)
+				.collect(Collectors.toList());
+	}
+
+	@Test
+	public void findRanksWordStartsAndPrefixes() {
+		// given
+		SymbolIndex index = new SymbolIndex();
+		index.addLanguage(LANGUAGE);
+		index.addDocument(document("class FooBar {\n  void fooBarBaz() {}\n}\nclass Buffer {}"));
+		index.addDocument(document("class Foo {\n  void xFob() {}\n}"));
+
+		// when (the second query only scores the names that matched the first one)
+		index.find("F", 10);
+		List<Symbol> symbols = index.find("FB", 10);
+
+		// then
+		assertEquals(List.of("FooBar@1:7", "fooBarBaz@2:8", "xFob@2:8"), names(symbols));
+		assertEquals(List.of("Foo@1:7"), names(index.find("foo", 1)));
+		assertEquals(List.of(), index.find("fbq", 10));
+		assertEquals(5, index.getSymbolCount());
+	}
+
+	@Test
+	public void randomEditsMatchFullExtraction() {
+		// given
+		Random random = new Random(11);
+		String[] inserts = {"class ", "void ", "A", "b", " ", "\n", "\n  void m() {}\n", "{", ""};
+		SymbolIndex index = new SymbolIndex();
+		index.addLanguage(LANGUAGE);
+		Document document = document("class A {\n  void f() {}\n}\n");
+		index.addDocument(document);
+
+		for (int i = 0; i < 500; i++) {
+			// when
+			for (int j = random.nextInt(3); j >= 0; j--) {
+				int offset = random.nextInt(document.getLength() + 1);
+				int length = random.nextInt(Math.min(document.getLength() - offset, 8) + 1);
+				document.replace(document.positionAt(offset), document.positionAt(offset + length),
+						inserts[random.nextInt(inserts.length)]);
+			}
+
+			// then
+			List<Symbol> expected = SymbolIndex.extractSymbols(EXTRACTOR, document,
+					document.getTextBuffer(), new CancellationToken());
+			assertEquals(names(expected), names(index.getSymbols(document)));
+			assertEquals(expected.size(), index.getSymbolCount());
+			List<String> expectedMatches = names(expected.stream()
+					.filter(s -> s.name.toLowerCase().contains("a")).collect(Collectors.toList()));
+			List<String> matches = names(index.find("a", 1000));
+			assertEquals(expectedMatches.stream().sorted().collect(Collectors.toList()),
+					matches.stream().sorted().collect(Collectors.toList()));
+		}
+
+		// when
+		index.removeDocument(document);
+
+		// then
+		assertEquals(0, index.getSymbolCount());
+	}
+}
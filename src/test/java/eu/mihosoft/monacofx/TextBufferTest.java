@@ -0,0 +1,143 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TextBufferTest {
+
+	@Test
+	public void insertDeleteReplace() {
+		// given
+		TextBuffer buffer = TextBuffer.of("hello world");
+
+		// when
+		TextBuffer inserted = buffer.insert(5, ",");
+		TextBuffer deleted = inserted.delete(0, 7);
+		TextBuffer replaced = deleted.replace(0, 5, "rope");
+
+		// then
+		assertEquals("hello world", buffer.toString());
+		assertEquals("hello, world", inserted.toString());
+		assertEquals("world", deleted.toString());
+		assertEquals("rope", replaced.toString());
+	}
+
+	@Test
+	public void randomEditsMatchStringBuilder() {
+		// given
+		Random random = new Random(42);
+		StringBuilder expected = new StringBuilder();
+		TextBuffer buffer = TextBuffer.EMPTY;
+
+		// when
+		for (int i = 0; i < 2000; i++) {
+			int start = random.nextInt(expected.length() + 1);
+			int end = start + random.nextInt(Math.min(expected.length() - start, 300) + 1);
+			String text = randomText(random, random.nextInt(i % 100 == 0 ? 5000 : 40));
+			expected.replace(start, end, text);
+			buffer = buffer.replace(start, end, text);
+		}
+
+		// then
+		assertEquals(expected.toString(), buffer.toString());
+		assertEquals(expected.length(), buffer.length());
+		int start = expected.length() / 3;
+		assertEquals(expected.substring(start, 2 * start), buffer.substring(start, 2 * start));
+		assertEquals(expected.substring(start, 2 * start), buffer.subSequence(start, 2 * start).toString());
+		for (int i = 0; i < expected.length(); i += 97) {
+			assertEquals(expected.charAt(i), buffer.charAt(i));
+		}
+	}
+
+	@Test
+	public void typingDoesNotFragmentLeaves() {
+		// given
+		Random random = new Random(7);
+		TextBuffer buffer = TextBuffer.of(randomText(random, 5000));
+
+		// when
+		for (int i = 0; i < 20000; i++) {
+			int offset = i % 500 == 0 ? random.nextInt(buffer.length() + 1) : Math.min(buffer.length(), i);
+			buffer = buffer.insert(offset, randomText(random, 1));
+		}
+
+		// then (neighbouring leaves don't fit into one leaf of 1024 chars)
+		int[] leaves = new int[1];
+		buffer.forEachChunk(0, buffer.length(), chunk -> leaves[0]++);
+		assertEquals(25000, buffer.length());
+		assertTrue("leaves: " + leaves[0], leaves[0] <= 2 * buffer.length() / 1024 + 1);
+	}
+
+	@Test
+	public void lines() {
+		// given
+		TextBuffer buffer = TextBuffer.of("first\r\nsecond\n\nfourth");
+
+		// then
+		assertEquals(4, buffer.getLineCount());
+		assertEquals("first", buffer.getLine(1));
+		assertEquals("second", buffer.getLine(2));
+		assertEquals("", buffer.getLine(3));
+		assertEquals("fourth", buffer.getLine(4));
+		assertEquals(7, buffer.getLineStart(2));
+		assertEquals(6, buffer.getLineLength(2));
+		assertEquals(2, buffer.getLineNumber(10));
+	}
+
+	@Test
+	public void offsetPositionConversion() {
+		// given
+		Random random = new Random(7);
+		String text = randomText(random, 20000);
+		TextBuffer buffer = TextBuffer.of(text);
+		String[] lines = text.split("\n", -1);
+
+		// then
+		assertEquals(lines.length, buffer.getLineCount());
+		int offset = 0;
+		for (int i = 0; i < lines.length; i++) {
+			assertEquals(lines[i], buffer.getLine(i + 1));
+			assertEquals(offset, buffer.getLineStart(i + 1));
+			Position position = buffer.positionAt(offset + lines[i].length());
+			assertEquals(i + 1, position.lineNumber);
+			assertEquals(lines[i].length() + 1, position.column);
+			assertEquals(offset + lines[i].length(), buffer.offsetAt(position));
+			offset += lines[i].length() + 1;
+		}
+	}
+
+	private static String randomText(Random random, int length) {
+		StringBuilder sb = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			sb.append(random.nextInt(10) == 0 ? '\n' : (char) ('a' + random.nextInt(26)));
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,110 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class TextDiffTest {
+
+	@Test
+	public void singleCharChange() {
+		// when
+		List<TextEdit> edits = TextDiff.compute("int a = 1;\nint b = 2;\n", "int a = 1;\nint b = 3;\n");
+
+		// then
+		assertEquals(1, edits.size());
+		assertEquals(19, edits.get(0).offset);
+		assertEquals(1, edits.get(0).length);
+		assertEquals("3", edits.get(0).text);
+	}
+
+	@Test
+	public void separateHunks() {
+		// given
+		String oldText = "a\nb\nc\nd\ne\nf\ng\n";
+		String newText = "a\nB\nc\nd\ne\nf\nG\nh\n";
+
+		// when
+		List<TextEdit> edits = TextDiff.compute(oldText, newText);
+
+		// then
+		assertEquals(2, edits.size());
+		assertEquals(newText, apply(oldText, edits));
+	}
+
+	@Test
+	public void crlfIsNotSplit() {
+		// when
+		List<TextEdit> edits = TextDiff.compute("a\r\nb", "a\r\r\nb");
+
+		// then
+		for (TextEdit edit : edits) {
+			assertEquals(false, edit.offset == 2);
+		}
+		assertEquals("a\r\r\nb", apply("a\r\nb", edits));
+	}
+
+	@Test
+	public void randomChanges() {
+		Random random = new Random(11);
+		for (int i = 0; i < 200; i++) {
+			// given
+			String oldText = randomLines(random, 50);
+			StringBuilder newText = new StringBuilder(oldText);
+			for (int j = random.nextInt(5); j >= 0; j--) {
+				int offset = random.nextInt(newText.length() + 1);
+				int end = Math.min(newText.length(), offset + random.nextInt(10));
+				newText.replace(offset, end, randomLines(random, random.nextInt(3)));
+			}
+
+			// when
+			List<TextEdit> edits = TextDiff.compute(oldText, newText.toString());
+
+			// then
+			assertEquals(newText.toString(), apply(oldText, edits));
+		}
+	}
+
+	private static String apply(String text, List<TextEdit> edits) {
+		StringBuilder sb = new StringBuilder(text);
+		for (int i = edits.size() - 1; i >= 0; i--) {
+			TextEdit edit = edits.get(i);
+			sb.replace(edit.offset, edit.offset + edit.length, edit.text);
+		}
+		return sb.toString();
+	}
+
+	private static String randomLines(Random random, int lines) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < lines; i++) {
+			sb.append("line ").append(random.nextInt(8)).append('\n');
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class TokenizationSupportTest {
+
+	/**
+	 * Tokenizes block comments ({@code /*} until {@code *}{@code /}), state: inside comment.
+	 */
+	private static final TokensProvider<Boolean> COMMENTS = new TokensProvider<Boolean>() {
+		@Override
+		public Boolean getInitialState() {
+			return false;
+		}
+
+		@Override
+		public Boolean tokenize(CharSequence line, Boolean inComment, TokenConsumer tokens) {
+			String text = line.toString();
+			if (!inComment && text.contains("/*")) inComment = true;
+			tokens.accept(0, inComment ? "comment" : "text");
+			return inComment && !text.contains("*/");
+		}
+	};
+
+	@Test
+	public void batchStopsWhenStateConverges() {
+		// given
+		Editor editor = new Editor(null);
+		editor.getDocument().setText("a\n/* b\nc\nd */\ne");
+		TokenizationSupport<Boolean> tokenization = new TokenizationSupport<>(COMMENTS, editor);
+		int initialState = tokenization.getInitialStateId();
+		String all = (String) tokenization.tokenize(new Object[]{1, initialState, "a"});
+
+		// when
+		Document document = editor.getDocument();
+		document.replace(new Position(3, 1), new Position(3, 2), "x");
+		String changed = (String) tokenization.tokenize(new Object[]{3, 1, "x"});
+
+		// then
+		assertEquals("{\"scopes\":[\"text\",\"comment\"],\"start\":1,"
+				+ "\"lines\":[\"a\",\"/* b\",\"c\",\"d */\",\"e\"],"
+				+ "\"tokens\":[0,1,0,0,1,1,0,1,1,1,0,1,0,1,0,1,0,1,0,0]}", all);
+		assertEquals("{\"scopes\":[],\"start\":3,\"lines\":[\"x\"],\"tokens\":[1,1,0,1]}", changed);
+	}
+
+	@Test
+	public void unknownLineIsTokenizedAlone() {
+		// given
+		Editor editor = new Editor(null);
+		editor.getDocument().setText("a\nb");
+		TokenizationSupport<Boolean> tokenization = new TokenizationSupport<>(COMMENTS, editor);
+
+		// when
+		String result = (String) tokenization.tokenize(new Object[]{2, tokenization.getInitialStateId(), "/* z"});
+
+		// then
+		assertEquals("{\"scopes\":[\"comment\"],\"start\":-1,\"lines\":[\"/* z\"],\"tokens\":[1,1,0,0]}", result);
+	}
+}
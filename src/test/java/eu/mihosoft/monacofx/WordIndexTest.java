@@ -0,0 +1,83 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2022 Michael Hoffer <info@michaelhoffer.de>. All rights reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package eu.mihosoft.monacofx;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class WordIndexTest {
+
+	private static WordIndex index(TextBuffer text) {
+		WordIndex index = new WordIndex();
+		index.reset(text);
+		return index;
+	}
+
+	@Test
+	public void completeIsCaseInsensitive() {
+		// given
+		WordIndex index = index(TextBuffer.of("int fooBar = foo + FooBaz; // f x\nfoo();"));
+
+		// when
+		List<String> words = index.complete("fo", 10);
+
+		// then (single-character words are not indexed)
+		assertEquals(List.of("foo", "fooBar", "FooBaz"), words);
+		assertEquals(2, index.getCount("foo"));
+		assertEquals(List.of("foo"), index.complete("FO", 1));
+		assertEquals(List.of(), index.complete("x", 10));
+	}
+
+	@Test
+	public void incrementalUpdatesMatchRebuild() {
+		// given
+		Random random = new Random(3);
+		String[] snippets = {"alpha", "beta", " ", "\n", "gamma_1", ".", "Al", "ph", "a", "(x)"};
+		TextBuffer text = TextBuffer.of("alpha beta\ngamma");
+		WordIndex index = index(text);
+
+		// when
+		for (int i = 0; i < 3000; i++) {
+			int start = random.nextInt(text.length() + 1);
+			int length = random.nextInt(Math.min(8, text.length() - start) + 1);
+			String insert = random.nextInt(3) == 0 ? "" : snippets[random.nextInt(snippets.length)];
+			TextBuffer before = text;
+			text = text.replace(start, start + length, insert);
+			index.applyChange(before, text, new DocumentChange(new Position(1, 1), new Position(1, 1),
+					start, length, insert, i, false));
+		}
+
+		// then
+		WordIndex rebuilt = index(text);
+		assertEquals(rebuilt.size(), index.size());
+		assertEquals(rebuilt.complete("", Integer.MAX_VALUE), index.complete("", Integer.MAX_VALUE));
+		for (String word : rebuilt.complete("", Integer.MAX_VALUE)) {
+			assertEquals(word, rebuilt.getCount(word), index.getCount(word));
+		}
+	}
+}